@@ -0,0 +1,64 @@
+package allocator;
+
+/**
+ * Allocator is the interface shared by the heap engines. Pointers are byte offsets of payloads within the engine's
+ * memory, and NULL (0) is returned when an allocation cannot be satisfied.
+ *
+ * @author Brandon Kenter
+ */
+public interface Allocator {
+    /**
+     * Allocates a block with room for at least the requested number of bytes.
+     *
+     * @param  size Number of bytes requested.
+     * @return Offset of the allocated payload, or HeapEngine.NULL if the request cannot be satisfied.
+     */
+    long malloc(long size);
+
+    /**
+     * Frees the block that holds the given payload.
+     *
+     * @param  ptr Offset of a payload returned by malloc().
+     */
+    void free(long ptr);
+
+    /**
+     * Resizes the block that holds the given payload, keeping its contents up to the smaller of the old and new
+     * sizes. The block is resized in place when possible and otherwise moved to a new block. A NULL pointer is
+     * allocated as by malloc(), and a size of 0 frees the block.
+     *
+     * @param  ptr Offset of a payload returned by malloc(), or HeapEngine.NULL.
+     * @param  size Number of bytes requested.
+     * @return Offset of the resized payload, or HeapEngine.NULL if the block was freed or the request cannot be
+     *         satisfied, in which case the original block is left untouched.
+     */
+    long realloc(long ptr, long size);
+
+    /**
+     * Returns the number of payload bytes available in an allocated block, which is at least the size requested.
+     *
+     * @param  ptr Offset of a payload returned by malloc().
+     * @return Usable size in bytes.
+     * @throws IllegalArgumentException If the pointer is not an allocated block.
+     */
+    long usableSize(long ptr);
+
+    /**
+     * Returns the total size of the allocated blocks, including headers and padding.
+     *
+     * @return Allocated size in bytes.
+     */
+    long allocatedSize();
+
+    /**
+     * Returns the total size of the free blocks.
+     *
+     * @return Free size in bytes.
+     */
+    long freeSize();
+
+    /**
+     * Frees every block.
+     */
+    void clear();
+}
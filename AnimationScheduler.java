@@ -0,0 +1,102 @@
+package allocator;
+
+import java.util.ArrayDeque;
+import java.util.function.DoubleSupplier;
+import javafx.animation.AnimationTimer;
+
+/**
+ * AnimationScheduler plays queued visual steps from a single frame loop on the JavaFX application thread. Each step
+ * waits a number of step intervals after the step before it. Every frame runs the steps that fell due followed by a
+ * single call to the frame action, so a frame never redraws more than once however many steps it runs. A step
+ * interval of zero skips the animation and runs all pending steps in the next frame.
+ *
+ * @author Brandon Kenter
+ */
+public class AnimationScheduler extends AnimationTimer {
+    private final ArrayDeque<Step> steps = new ArrayDeque<>(); // Pending steps in the order they play
+    private final DoubleSupplier stepMillis; // Length of a step interval, read every frame so it can change
+    private final Runnable frame; // Runs once at the end of every frame
+    private double progress; // Step intervals elapsed since the last step ran
+    private long lastFrame; // Time of the previous frame in nanoseconds, or 0 before the first frame
+
+    /**
+     * A visual change and the number of step intervals to wait after the previous step before making it.
+     */
+    private static class Step {
+        private final double delay; // Step intervals to wait after the previous step
+        private final Runnable action; // The visual change
+
+        private Step(double delay, Runnable action) {
+            this.delay = delay;
+            this.action = action;
+        }
+    }
+
+    /**
+     * Creates a scheduler. It does not run until start() is called.
+     *
+     * @param  stepMillis Supplies the length of a step interval in milliseconds, 0 to skip the animation.
+     * @param  frame Runs after the steps of each frame, typically to repaint what changed.
+     */
+    public AnimationScheduler(DoubleSupplier stepMillis, Runnable frame) {
+        this.stepMillis = stepMillis;
+        this.frame = frame;
+    }
+
+    /**
+     * Queues a step to run after every step queued before it.
+     *
+     * @param  delay Number of step intervals to wait after the previous step, 0 to run in the same frame.
+     * @param  action The visual change to make.
+     */
+    public void schedule(double delay, Runnable action) {
+        if (delay < 0) {
+            throw new IllegalArgumentException("Step delay cannot be negative: " + delay);
+        }
+        steps.add(new Step(delay, action));
+    }
+
+    /**
+     * Drops every pending step without running it.
+     */
+    public void cancel() {
+        steps.clear();
+        progress = 0;
+    }
+
+    /**
+     * Returns whether every queued step has run.
+     *
+     * @return True if no steps are pending.
+     */
+    public boolean isIdle() {
+        return steps.isEmpty();
+    }
+
+    /**
+     * Runs the steps that fell due since the previous frame, then the frame action.
+     *
+     * @param  now Time of the frame in nanoseconds.
+     */
+    @Override
+    public void handle(long now) {
+        long elapsed = lastFrame == 0 ? 0 : now - lastFrame;
+        lastFrame = now;
+        if (!steps.isEmpty()) {
+            // Advance by the time since the last frame, or past every step when the animation is skipped
+            double interval = stepMillis.getAsDouble() * 1_000_000;
+            progress = interval <= 0 ? Double.POSITIVE_INFINITY : progress + elapsed / interval;
+
+            // Run every step that is due
+            while (!steps.isEmpty() && steps.peek().delay <= progress) {
+                Step step = steps.poll();
+                progress -= step.delay;
+                step.action.run();
+            }
+            if (steps.isEmpty()) {
+                progress = 0;
+            }
+        }
+        frame.run();
+    }
+}
@@ -0,0 +1,278 @@
+package allocator;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * ArenaAllocator is a thread-safe allocator that splits the heap into several independently locked arenas, each a
+ * HeapEngine with its own geometry and free block index. Every thread is assigned a home arena, either round-robin
+ * in the order threads first allocate or by a hash of the thread, so threads on different cores rarely contend on
+ * the same lock. When the home arena cannot satisfy a request the other arenas are tried in turn.
+ *
+ * Arena i occupies the address range starting at i times a power-of-two stride, so the arena that owns a pointer is
+ * found with a shift and frees always go back to the owning arena. A thread that frees a block of an arena other than
+ * its home arena does not take that arena's lock: it pushes the block onto the arena's lock-free RemoteFreeQueue, and
+ * the queue is drained in one batch by the next thread that locks the arena.
+ *
+ * @author Brandon Kenter
+ */
+public class ArenaAllocator implements Allocator {
+    /**
+     * How threads are assigned to arenas.
+     */
+    public enum Assignment {
+        ROUND_ROBIN, // Threads take arenas in turn when they first allocate
+        THREAD_HASH // Threads are mapped by a hash of their id
+    }
+
+    private final HeapEngine[] arenas; // Arena heaps
+    private final ReentrantLock[] locks; // Lock guarding each arena
+    private final RemoteFreeQueue[] remoteFrees; // Blocks of each arena freed by threads of other arenas
+    private final int strideShift; // log2 of the address range reserved per arena
+    private final Assignment assignment; // How threads are assigned to arenas
+    private final AtomicInteger nextArena = new AtomicInteger(); // Next arena handed out round-robin
+    private final ThreadLocal<Integer> homeArena; // Home arena of each thread when assigned round-robin
+
+    /**
+     * Creates arenas that use the given placement policy, assigning threads round-robin.
+     *
+     * @param  arenaCount Number of arenas, usually the number of cores.
+     * @param  geometry Layout of each arena.
+     * @param  policy Placement policy of each arena.
+     */
+    public ArenaAllocator(int arenaCount, HeapGeometry geometry, PlacementPolicy policy) {
+        this(arenaCount, geometry, policy::newIndex, Assignment.ROUND_ROBIN);
+    }
+
+    /**
+     * Creates arenas.
+     *
+     * @param  arenaCount Number of arenas, usually the number of cores.
+     * @param  geometry Layout of each arena.
+     * @param  indexes Creates a new free block index for each arena.
+     * @param  assignment How threads are assigned to arenas.
+     */
+    public ArenaAllocator(int arenaCount, HeapGeometry geometry, Supplier<FreeBlockIndex> indexes,
+                          Assignment assignment) {
+        if (arenaCount <= 0) {
+            throw new IllegalArgumentException("Arena count must be positive: " + arenaCount);
+        }
+        this.strideShift = 64 - Long.numberOfLeadingZeros(geometry.totalSize() - 1);
+        if (strideShift + 32 - Integer.numberOfLeadingZeros(arenaCount - 1) > 62) {
+            throw new IllegalArgumentException("Arenas do not fit in the address space");
+        }
+        this.arenas = new HeapEngine[arenaCount];
+        this.locks = new ReentrantLock[arenaCount];
+        this.remoteFrees = new RemoteFreeQueue[arenaCount];
+        for (int i = 0; i < arenaCount; i++) {
+            arenas[i] = new HeapEngine(geometry, indexes.get());
+            locks[i] = new ReentrantLock();
+            remoteFrees[i] = new RemoteFreeQueue(arenas[i]);
+        }
+        this.assignment = assignment;
+        this.homeArena = ThreadLocal.withInitial(() -> Math.floorMod(nextArena.getAndIncrement(), arenaCount));
+    }
+
+    @Override
+    public long malloc(long size) {
+        int home = homeArena();
+        for (int i = 0; i < arenas.length; i++) {
+            int arena = (home + i) % arenas.length;
+            long ptr;
+            locks[arena].lock();
+            try {
+                drainRemoteFrees(arena);
+                ptr = arenas[arena].malloc(size);
+            } finally {
+                locks[arena].unlock();
+            }
+            if (ptr != HeapEngine.NULL) {
+                return ((long) arena << strideShift) + ptr;
+            }
+        }
+        return HeapEngine.NULL;
+    }
+
+    @Override
+    public void free(long ptr) {
+        // Hand blocks of other arenas to their owners without locking
+        int arena = arenaOf(ptr);
+        if (arena != homeArena()) {
+            remoteFrees[arena].push(localPointer(ptr));
+            return;
+        }
+        locks[arena].lock();
+        try {
+            // Free queued blocks first, so a block also freed remotely fails here instead of breaking the queue
+            drainRemoteFrees(arena);
+            arenas[arena].free(localPointer(ptr));
+        } finally {
+            locks[arena].unlock();
+        }
+    }
+
+    /**
+     * Resizes a block within its owning arena, moving it to another arena only when the owning arena has no room.
+     *
+     * @param  ptr Pointer returned by malloc(), or HeapEngine.NULL.
+     * @param  size Number of bytes requested.
+     * @return Resized pointer, or HeapEngine.NULL if the block was freed or the request cannot be satisfied.
+     */
+    @Override
+    public long realloc(long ptr, long size) {
+        if (ptr == HeapEngine.NULL) {
+            return malloc(size);
+        }
+        if (size <= 0) {
+            free(ptr);
+            return HeapEngine.NULL;
+        }
+        int arena = arenaOf(ptr);
+        long local;
+        locks[arena].lock();
+        try {
+            drainRemoteFrees(arena);
+            local = arenas[arena].realloc(localPointer(ptr), size);
+        } finally {
+            locks[arena].unlock();
+        }
+        if (local != HeapEngine.NULL) {
+            return ((long) arena << strideShift) + local;
+        }
+
+        // Move the block to whichever arena has room
+        long moved = malloc(size);
+        if (moved == HeapEngine.NULL) {
+            return HeapEngine.NULL;
+        }
+        arenas[arena].copyPayload(localPointer(ptr), arenas[arenaOf(moved)], localPointer(moved),
+                usableSize(ptr));
+        free(ptr);
+        return moved;
+    }
+
+    @Override
+    public long usableSize(long ptr) {
+        return arenas[arenaOf(ptr)].usableSize(localPointer(ptr));
+    }
+
+    @Override
+    public long allocatedSize() {
+        long total = 0;
+        for (int i = 0; i < arenas.length; i++) {
+            locks[i].lock();
+            try {
+                drainRemoteFrees(i);
+                total += arenas[i].allocatedSize();
+            } finally {
+                locks[i].unlock();
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public long freeSize() {
+        long total = 0;
+        for (int i = 0; i < arenas.length; i++) {
+            locks[i].lock();
+            try {
+                drainRemoteFrees(i);
+                total += arenas[i].freeSize();
+            } finally {
+                locks[i].unlock();
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < arenas.length; i++) {
+            locks[i].lock();
+            try {
+                remoteFrees[i].discard();
+                arenas[i].clear();
+            } finally {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of times draining an arena's remote frees stopped at a block that was freed twice, leaving
+     * the blocks queued behind it allocated.
+     *
+     * @return Number of rejected remote frees.
+     */
+    public long rejectedRemoteFrees() {
+        long total = 0;
+        for (int i = 0; i < arenas.length; i++) {
+            locks[i].lock();
+            try {
+                total += remoteFrees[i].rejected();
+            } finally {
+                locks[i].unlock();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of arenas.
+     *
+     * @return Arena count.
+     */
+    public int arenaCount() {
+        return arenas.length;
+    }
+
+    /**
+     * Returns the arena that owns a pointer.
+     *
+     * @param  ptr Pointer returned by malloc().
+     * @return Index of the owning arena.
+     */
+    public int arenaOf(long ptr) {
+        int arena = (int) (ptr >>> strideShift);
+        if (arena >= arenas.length) {
+            throw new IllegalArgumentException("Invalid pointer " + ptr);
+        }
+        return arena;
+    }
+
+    /**
+     * Frees the blocks other threads queued for an arena. The arena's lock must be held.
+     *
+     * @param  arena Index of the arena.
+     */
+    private void drainRemoteFrees(int arena) {
+        if (!remoteFrees[arena].isEmpty()) {
+            remoteFrees[arena].drain();
+        }
+    }
+
+    /**
+     * Returns the home arena of the calling thread.
+     *
+     * @return Index of the home arena.
+     */
+    private int homeArena() {
+        if (assignment == Assignment.THREAD_HASH) {
+            long h = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+            return (int) ((h >>> 32) % arenas.length);
+        }
+        return homeArena.get();
+    }
+
+    /**
+     * Returns a pointer relative to its owning arena.
+     *
+     * @param  ptr Pointer returned by malloc().
+     * @return Offset of the payload within its arena.
+     */
+    private long localPointer(long ptr) {
+        return ptr & ((1L << strideShift) - 1);
+    }
+}
@@ -0,0 +1,68 @@
+package allocator;
+
+/**
+ * ArrayHeapMemory keeps a heap in ordinary Java memory. Memory is split into fixed-size pages of 4-byte words so a heap
+ * can span several gigabytes while offsets stay plain longs. Reads and writes must be aligned to their width.
+ *
+ * @author Brandon Kenter
+ */
+public class ArrayHeapMemory implements HeapMemory {
+    private static final int PAGE_SHIFT = 20; // Words per page as a power of two (4 MiB pages)
+    private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+
+    private final int[][] pages; // Pages of 4-byte words
+    private final long size; // Size of the memory in bytes
+
+    /**
+     * Creates zeroed memory of the given size.
+     *
+     * @param  size Size in bytes, a multiple of 4.
+     */
+    public ArrayHeapMemory(long size) {
+        if (size <= 0 || size % 4 != 0) {
+            throw new IllegalArgumentException("Memory size must be a positive multiple of 4: " + size);
+        }
+        long words = size >> 2;
+        int pageCount = (int) ((words + PAGE_MASK) >>> PAGE_SHIFT);
+        this.pages = new int[pageCount][];
+        for (int i = 0; i < pageCount; i++) {
+            long remaining = words - ((long) i << PAGE_SHIFT);
+            pages[i] = new int[(int) Math.min(remaining, 1 << PAGE_SHIFT)];
+        }
+        this.size = size;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public int getInt(long offset) {
+        long word = offset >>> 2;
+        return pages[(int) (word >>> PAGE_SHIFT)][(int) word & PAGE_MASK];
+    }
+
+    @Override
+    public void putInt(long offset, int value) {
+        long word = offset >>> 2;
+        pages[(int) (word >>> PAGE_SHIFT)][(int) word & PAGE_MASK] = value;
+    }
+
+    @Override
+    public long getLong(long offset) {
+        long word = offset >>> 2;
+        int[] page = pages[(int) (word >>> PAGE_SHIFT)];
+        int i = (int) word & PAGE_MASK;
+        return (page[i] & 0xFFFFFFFFL) | ((long) page[i + 1] << 32);
+    }
+
+    @Override
+    public void putLong(long offset, long value) {
+        long word = offset >>> 2;
+        int[] page = pages[(int) (word >>> PAGE_SHIFT)];
+        int i = (int) word & PAGE_MASK;
+        page[i] = (int) value;
+        page[i + 1] = (int) (value >>> 32);
+    }
+}
@@ -0,0 +1,25 @@
+package allocator;
+
+/**
+ * BlockRelocator decides which allocated blocks a compaction may move and is told where each moved block went, so
+ * that whoever holds references to the blocks can update them.
+ *
+ * @author Brandon Kenter
+ */
+public interface BlockRelocator {
+    /**
+     * Returns whether the block holding a payload may be moved. Blocks that cannot move stay pinned in place.
+     *
+     * @param  ptr Offset of the payload.
+     * @return True if the block is relocatable.
+     */
+    boolean canMove(long ptr);
+
+    /**
+     * Called after a block has been moved and its contents copied.
+     *
+     * @param  from Offset of the payload before the move.
+     * @param  to Offset of the payload after the move.
+     */
+    void moved(long from, long to);
+}
@@ -0,0 +1,229 @@
+package allocator;
+
+import java.util.Arrays;
+
+/**
+ * BuddyAllocator is a binary buddy-system allocator. The heap is a power-of-two sized region that is split in halves
+ * until a block of the smallest power of two that fits the request (plus its header) is obtained. Each free block is
+ * kept on the free list of its order, and a bitmap of non-empty orders finds the smallest available order with a
+ * single bit scan. A block's buddy is found by flipping the bit of its size in its offset, and a freed block is merged
+ * with its buddy for as long as the buddy is free and of the same order, so allocation and free are O(log heap).
+ *
+ * Every block starts with an 8-byte header packed as Size | Allocated Bit, so payloads are 8-byte aligned. Free
+ * blocks store next and previous links for their free list in the two words after the header.
+ *
+ * @author Brandon Kenter
+ */
+public class BuddyAllocator implements Allocator {
+    private static final long A_BIT = 1; // Allocated bit of a header
+    private static final int HEADER_SIZE = 8; // Size of a header in bytes
+    private static final int MIN_ORDER = 5; // Smallest block (32 bytes) holds a header and two links
+
+    private final HeapMemory memory; // Heap memory, block offsets start at 0
+    private final int maxOrder; // Order of the whole heap
+    private final long[] heads; // First free block of each order, or -1 if the order is empty
+    private long bitmap; // Bit k is set when the free list of order k is non-empty
+    private long allocatedSize; // Total size of the allocated blocks
+
+    /**
+     * Creates a buddy heap of the given size.
+     *
+     * @param  heapSize Size of the heap in bytes, a power of two of at least 32.
+     */
+    public BuddyAllocator(long heapSize) {
+        if (heapSize < (1L << MIN_ORDER) || Long.bitCount(heapSize) != 1) {
+            throw new IllegalArgumentException("Heap size must be a power of two of at least 32: " + heapSize);
+        }
+        this.memory = new ArrayHeapMemory(heapSize);
+        this.maxOrder = Long.numberOfTrailingZeros(heapSize);
+        this.heads = new long[maxOrder + 1];
+        clear();
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(heads, -1);
+        bitmap = 0;
+        allocatedSize = 0;
+        push(0, maxOrder);
+    }
+
+    @Override
+    public long malloc(long size) {
+        if (size <= 0 || size > (1L << maxOrder) - HEADER_SIZE) {
+            return HeapEngine.NULL;
+        }
+        int order = Math.max(MIN_ORDER, 64 - Long.numberOfLeadingZeros(size + HEADER_SIZE - 1));
+
+        // Find the smallest non-empty order that is large enough
+        long available = bitmap & (-1L << order);
+        if (available == 0) {
+            return HeapEngine.NULL;
+        }
+        int blockOrder = Long.numberOfTrailingZeros(available);
+        long block = heads[blockOrder];
+        unlink(block, blockOrder);
+
+        // Split until the block has the requested order, freeing the upper halves
+        while (blockOrder > order) {
+            blockOrder--;
+            push(block + (1L << blockOrder), blockOrder);
+        }
+        memory.putLong(block, (1L << order) | A_BIT);
+        allocatedSize += 1L << order;
+        return block + HEADER_SIZE;
+    }
+
+    @Override
+    public void free(long ptr) {
+        long block = allocatedBlock(ptr, "free");
+        long size = memory.getLong(block) & ~A_BIT;
+        int order = Long.numberOfTrailingZeros(size);
+        allocatedSize -= size;
+
+        // Merge with the buddy while it is a free block of the same order
+        while (order < maxOrder) {
+            long buddy = block ^ (1L << order);
+            if (memory.getLong(buddy) != (1L << order)) {
+                break;
+            }
+            unlink(buddy, order);
+            block = Math.min(block, buddy);
+            order++;
+        }
+        push(block, order);
+    }
+
+    /**
+     * Resizes a block. A smaller block is shrunk in place by freeing its upper halves, and a larger block grows in
+     * place when it is the lower buddy of free buddies of every order up to the new size. Otherwise the payload is
+     * copied to a new block and the old block is freed.
+     *
+     * @param  ptr Offset of a payload returned by malloc(), or HeapEngine.NULL.
+     * @param  size Number of bytes requested.
+     * @return Offset of the resized payload, or HeapEngine.NULL if the block was freed or the request cannot be
+     *         satisfied.
+     */
+    @Override
+    public long realloc(long ptr, long size) {
+        if (ptr == HeapEngine.NULL) {
+            return malloc(size);
+        }
+        long block = allocatedBlock(ptr, "realloc");
+        if (size <= 0) {
+            free(ptr);
+            return HeapEngine.NULL;
+        }
+        if (size > (1L << maxOrder) - HEADER_SIZE) {
+            return HeapEngine.NULL;
+        }
+        int order = Long.numberOfTrailingZeros(memory.getLong(block) & ~A_BIT);
+        int newOrder = Math.max(MIN_ORDER, 64 - Long.numberOfLeadingZeros(size + HEADER_SIZE - 1));
+
+        // Shrink in place by freeing the upper halves
+        if (newOrder <= order) {
+            for (int o = order - 1; o >= newOrder; o--) {
+                push(block + (1L << o), o);
+            }
+            memory.putLong(block, (1L << newOrder) | A_BIT);
+            allocatedSize -= (1L << order) - (1L << newOrder);
+            return ptr;
+        }
+
+        // Grow in place if the block is the lower half of free buddies up to the new order
+        int o = order;
+        while (o < newOrder && (block & (1L << o)) == 0 && memory.getLong(block + (1L << o)) == (1L << o)) {
+            o++;
+        }
+        if (o == newOrder) {
+            for (o = order; o < newOrder; o++) {
+                unlink(block + (1L << o), o);
+            }
+            memory.putLong(block, (1L << newOrder) | A_BIT);
+            allocatedSize += (1L << newOrder) - (1L << order);
+            return ptr;
+        }
+
+        // Move to a new block
+        long newPtr = malloc(size);
+        if (newPtr == HeapEngine.NULL) {
+            return HeapEngine.NULL;
+        }
+        for (long i = 0; i < (1L << order) - HEADER_SIZE; i += 8) {
+            memory.putLong(newPtr + i, memory.getLong(ptr + i));
+        }
+        free(ptr);
+        return newPtr;
+    }
+
+    @Override
+    public long usableSize(long ptr) {
+        return (memory.getLong(allocatedBlock(ptr, "usableSize")) & ~A_BIT) - HEADER_SIZE;
+    }
+
+    @Override
+    public long allocatedSize() {
+        return allocatedSize;
+    }
+
+    @Override
+    public long freeSize() {
+        return (1L << maxOrder) - allocatedSize;
+    }
+
+    /**
+     * Returns the block holding an allocated payload, rejecting pointers that were not returned by malloc().
+     *
+     * @param  ptr Offset of the payload.
+     * @param  operation Name of the operation for the error message.
+     * @return Offset of the block header.
+     */
+    private long allocatedBlock(long ptr, String operation) {
+        long block = ptr - HEADER_SIZE;
+        if (block < 0 || block >= (1L << maxOrder) || (block & ((1L << MIN_ORDER) - 1)) != 0
+                || (memory.getLong(block) & A_BIT) == 0) {
+            throw new IllegalArgumentException("Invalid " + operation + " of pointer " + ptr);
+        }
+        return block;
+    }
+
+    /**
+     * Marks a block as free and pushes it onto the free list of its order.
+     *
+     * @param  block Offset of the block.
+     * @param  order Order of the block.
+     */
+    private void push(long block, int order) {
+        long head = heads[order];
+        memory.putLong(block, 1L << order);
+        memory.putLong(block + 8, head);
+        memory.putLong(block + 16, -1);
+        if (head != -1) {
+            memory.putLong(head + 16, block);
+        }
+        heads[order] = block;
+        bitmap |= 1L << order;
+    }
+
+    /**
+     * Removes a free block from the free list of its order.
+     *
+     * @param  block Offset of the block.
+     * @param  order Order of the block.
+     */
+    private void unlink(long block, int order) {
+        long next = memory.getLong(block + 8);
+        long prev = memory.getLong(block + 16);
+        if (prev == -1) {
+            heads[order] = next;
+            if (next == -1) {
+                bitmap &= ~(1L << order);
+            }
+        } else {
+            memory.putLong(prev + 8, next);
+        }
+        if (next != -1) {
+            memory.putLong(next + 16, prev);
+        }
+    }
+}
@@ -1,275 +1,44 @@
-package allocator;
-
-import javafx.fxml.FXML;
-import javafx.scene.control.Button;
-import javafx.scene.control.ComboBox;
-import javafx.scene.control.Label;
-import javafx.scene.control.Slider;
-import javafx.scene.shape.Ellipse;
-
-/**
- * UI elements for the application.
- *
- * @author Brandon Kenter
- */
-public class ButtonsAndLabels {
-    @FXML
-    public Label bit0;
-    @FXML
-    public Label bit1;
-    @FXML
-    public Label bit2;
-    @FXML
-    public Label bit3;
-    @FXML
-    public Label bit4;
-    @FXML
-    public Label bit5;
-    @FXML
-    public Label bit6;
-    @FXML
-    public Label bit7;
-    @FXML
-    public Label bit8;
-    @FXML
-    public Label bit9;
-    @FXML
-    public Label bit10;
-    @FXML
-    public Label bit11;
-    @FXML
-    public Label bit12;
-    @FXML
-    public Label bit13;
-    @FXML
-    public Label bit14;
-    @FXML
-    public Label bit15;
-    @FXML
-    public Label bit16;
-    @FXML
-    public Label bit17;
-    @FXML
-    public Label bit18;
-    @FXML
-    public Label bit19;
-    @FXML
-    public Label bit20;
-    @FXML
-    public Label bit21;
-    @FXML
-    public Label bit22;
-    @FXML
-    public Label bit23;
-    @FXML
-    public Label bit24;
-    @FXML
-    public Label bit25;
-    @FXML
-    public Label bit26;
-    @FXML
-    public Label bit27;
-    @FXML
-    public Label bit28;
-    @FXML
-    public Label bit29;
-    @FXML
-    public Label bit30;
-    @FXML
-    public Label bit31;
-    @FXML
-    public Label bit32;
-    @FXML
-    public Label bit33;
-    @FXML
-    public Label bit34;
-    @FXML
-    public Label bit35;
-    @FXML
-    public Label bit36;
-    @FXML
-    public Label bit37;
-    @FXML
-    public Label bit38;
-    @FXML
-    public Label bit39;
-    @FXML
-    public Label bit40;
-    @FXML
-    public Label bit41;
-    @FXML
-    public Label bit42;
-    @FXML
-    public Label bit43;
-    @FXML
-    public Label bit44;
-    @FXML
-    public Label bit45;
-    @FXML
-    public Label bit46;
-    @FXML
-    public Label bit47;
-    @FXML
-    public Label bit48;
-    @FXML
-    public Label bit49;
-    @FXML
-    public Label bit50;
-    @FXML
-    public Label bit51;
-    @FXML
-    public Label bit52;
-    @FXML
-    public Label bit53;
-    @FXML
-    public Label bit54;
-    @FXML
-    public Label bit55;
-    @FXML
-    public Label bit56;
-    @FXML
-    public Label bit57;
-    @FXML
-    public Label bit58;
-    @FXML
-    public Label bit59;
-    @FXML
-    public Label bit60;
-    @FXML
-    public Label bit61;
-    @FXML
-    public Label bit62;
-    @FXML
-    public Label bit63;
-    @FXML
-    public Label bit64;
-    @FXML
-    public Label bit65;
-    @FXML
-    public Label bit66;
-    @FXML
-    public Label bit67;
-    @FXML
-    public Label bit68;
-    @FXML
-    public Label bit69;
-    @FXML
-    public Label bit70;
-    @FXML
-    public Label bit71;
-
-    @FXML
-    public Ellipse status1;
-    @FXML
-    public Ellipse status3;
-    @FXML
-    public Ellipse status5;
-    @FXML
-    public Ellipse status7;
-    @FXML
-    public Ellipse status9;
-    @FXML
-    public Ellipse status11;
-    @FXML
-    public Ellipse status13;
-    @FXML
-    public Ellipse status15;
-
-    @FXML
-    public Label ptr0;
-    @FXML
-    public Label ptr1;
-    @FXML
-    public Label ptr2;
-    @FXML
-    public Label ptr3;
-    @FXML
-    public Label ptr4;
-    @FXML
-    public Label ptr5;
-    @FXML
-    public Label ptr6;
-    @FXML
-    public Label ptr7;
-    @FXML
-    public Label ptr8;
-    @FXML
-    public Label ptr9;
-    @FXML
-    public Label ptr10;
-    @FXML
-    public Label ptr11;
-    @FXML
-    public Label ptr12;
-    @FXML
-    public Label ptr13;
-    @FXML
-    public Label ptr14;
-    @FXML
-    public Label ptr15;
-    @FXML
-    public Label ptr16;
-    @FXML
-    public Label ptr17;
-
-    @FXML
-    public Label bits0;
-    @FXML
-    public Label bits1;
-    @FXML
-    public Label bits2;
-    @FXML
-    public Label bits3;
-    @FXML
-    public Label bits4;
-    @FXML
-    public Label bits5;
-    @FXML
-    public Label bits6;
-    @FXML
-    public Label bits7;
-    @FXML
-    public Label bits8;
-    @FXML
-    public Label bits9;
-    @FXML
-    public Label bits10;
-    @FXML
-    public Label bits11;
-    @FXML
-    public Label bits12;
-    @FXML
-    public Label bits13;
-    @FXML
-    public Label bits14;
-    @FXML
-    public Label bits15;
-    @FXML
-    public Label bits16;
-    @FXML
-    public Label bits17;
-
-    @FXML
-    public Label totalAllocatedSize;
-    @FXML
-    public Label totalFreeSize;
-
-    @FXML
-    public Button allocateBtn;
-    @FXML
-    public Button freeBtn;
-    @FXML
-    public Button clearBtn;
-    @FXML
-    public Button totalAllocSizeBtn;
-    @FXML
-    public Button totalFreeSizeBtn;
-
-    @FXML
-    public Slider traversalSpeedSlider;
-
-    @FXML
-    public ComboBox comboBoxAlloc;
-    @FXML
-    public ComboBox comboBoxFree;
-}
+package allocator;
+
+import javafx.fxml.FXML;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.Slider;
+
+/**
+ * UI elements for the application.
+ *
+ * @author Brandon Kenter
+ */
+public class ButtonsAndLabels {
+    @FXML
+    public Canvas heapCanvas;
+    @FXML
+    public Canvas heapOverviewCanvas;
+
+    @FXML
+    public Label totalAllocatedSize;
+    @FXML
+    public Label totalFreeSize;
+
+    @FXML
+    public Button allocateBtn;
+    @FXML
+    public Button freeBtn;
+    @FXML
+    public Button clearBtn;
+    @FXML
+    public Button totalAllocSizeBtn;
+    @FXML
+    public Button totalFreeSizeBtn;
+
+    @FXML
+    public Slider traversalSpeedSlider;
+
+    @FXML
+    public ComboBox comboBoxAlloc;
+    @FXML
+    public ComboBox comboBoxFree;
+}
@@ -0,0 +1,126 @@
+package allocator;
+
+/**
+ * ExplicitFreeList keeps the free blocks in a doubly-linked list whose next and previous links are stored in the
+ * first two payload words of every free block. Allocation walks only the free blocks and uses the first one that is
+ * large enough. Freed blocks are either pushed onto the front of the list (LIFO) or inserted in address order, which
+ * makes the search equivalent to first-fit over the whole heap at the cost of a linear insertion.
+ *
+ * @author Brandon Kenter
+ */
+public class ExplicitFreeList implements FreeBlockIndex {
+    /**
+     * Order in which freed blocks are inserted into the list.
+     */
+    public enum Order {
+        LIFO, // Freed blocks are pushed onto the front of the list
+        ADDRESS // Blocks are kept sorted by address
+    }
+
+    private final Order order; // Insertion order of freed blocks
+    private HeapEngine heap; // Heap whose free blocks are linked
+    private long nextOffset; // Offset of the next link from the block header
+    private long prevOffset; // Offset of the previous link from the block header
+    private long head; // First free block, or NULL if the list is empty
+    private long visits; // Blocks examined by find()
+
+    /**
+     * Creates a free list with the given insertion order.
+     *
+     * @param  order Insertion order of freed blocks.
+     */
+    public ExplicitFreeList(Order order) {
+        this.order = order;
+    }
+
+    @Override
+    public void attach(HeapEngine heap) {
+        this.heap = heap;
+        this.nextOffset = heap.geometry().headerSize();
+        this.prevOffset = 2L * heap.geometry().headerSize();
+    }
+
+    @Override
+    public int linkWords() {
+        return 2;
+    }
+
+    @Override
+    public void reset() {
+        head = HeapEngine.NULL;
+    }
+
+    @Override
+    public void insert(long block) {
+        // Push onto the front of the list
+        if (order == Order.LIFO || head == HeapEngine.NULL || block < head) {
+            setPrev(block, HeapEngine.NULL);
+            setNext(block, head);
+            if (head != HeapEngine.NULL) {
+                setPrev(head, block);
+            }
+            head = block;
+            return;
+        }
+
+        // Find the last free block before this one and link after it
+        long prev = head;
+        long next = next(prev);
+        while (next != HeapEngine.NULL && next < block) {
+            prev = next;
+            next = next(prev);
+        }
+        setNext(prev, block);
+        setPrev(block, prev);
+        setNext(block, next);
+        if (next != HeapEngine.NULL) {
+            setPrev(next, block);
+        }
+    }
+
+    @Override
+    public void remove(long block) {
+        long prev = prev(block);
+        long next = next(block);
+        if (prev == HeapEngine.NULL) {
+            head = next;
+        } else {
+            setNext(prev, next);
+        }
+        if (next != HeapEngine.NULL) {
+            setPrev(next, prev);
+        }
+    }
+
+    @Override
+    public long find(long size) {
+        for (long block = head; block != HeapEngine.NULL; block = next(block)) {
+            visits++;
+            if (heap.blockSize(block) >= size) {
+                return block;
+            }
+        }
+        return HeapEngine.NULL;
+    }
+
+    @Override
+    public long visits() {
+        return visits;
+    }
+
+    private long next(long block) {
+        return heap.word(block + nextOffset);
+    }
+
+    private long prev(long block) {
+        return heap.word(block + prevOffset);
+    }
+
+    private void setNext(long block, long next) {
+        heap.setWord(block + nextOffset, next);
+    }
+
+    private void setPrev(long block, long prev) {
+        heap.setWord(block + prevOffset, prev);
+    }
+}
@@ -0,0 +1,200 @@
+package allocator;
+
+import java.util.Arrays;
+
+/**
+ * FirstFitTree finds the lowest-addressed free block that is large enough, exactly like walking the heap from the
+ * start, in logarithmic time. The heap is divided into fixed-size chunks, and the free blocks starting in each chunk
+ * are kept in an address-ordered doubly-linked list whose links are stored in the first two payload words of every
+ * free block. A segment tree over the chunks holds in every node the size of the largest free block starting in its
+ * range of chunks, so an allocation descends from the root to the leftmost chunk that has a large enough block and
+ * then takes the first large enough block of that chunk's short list. Every split and coalesce inserts or removes a
+ * free block, which updates one chunk's list and the path from its leaf to the root.
+ *
+ * @author Brandon Kenter
+ */
+public class FirstFitTree implements FreeBlockIndex {
+    private static final int DEFAULT_CHUNK_SIZE = 1024; // Bytes of heap per leaf of the tree
+
+    private final int chunkShift; // Log2 of the chunk size
+    private HeapEngine heap; // Heap whose free blocks are indexed
+    private long heapStart; // Offset of the first block header
+    private long nextOffset; // Offset of the next link from the block header
+    private long prevOffset; // Offset of the previous link from the block header
+    private long[] heads; // First free block starting in each chunk, or NULL
+    private long[] largest; // Segment tree of the largest free block size starting in a range of chunks, root at 1
+    private int leaves; // Number of leaves of the tree, a power of two at least the number of chunks
+    private long visits; // Tree nodes and blocks examined by find()
+
+    /**
+     * Creates a tree with the default chunk size of 1024 bytes.
+     */
+    public FirstFitTree() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a tree with the given chunk size. Smaller chunks shorten the list searched at the end of an allocation
+     * at the cost of a larger tree.
+     *
+     * @param  chunkSize Bytes of heap per leaf of the tree, a power of two of at least 64.
+     */
+    public FirstFitTree(int chunkSize) {
+        if (chunkSize < 64 || Integer.bitCount(chunkSize) != 1) {
+            throw new IllegalArgumentException("Chunk size must be a power of two of at least 64: " + chunkSize);
+        }
+        this.chunkShift = Integer.numberOfTrailingZeros(chunkSize);
+    }
+
+    @Override
+    public void attach(HeapEngine heap) {
+        this.heap = heap;
+        this.heapStart = heap.geometry().heapStart();
+        this.nextOffset = heap.geometry().headerSize();
+        this.prevOffset = 2L * heap.geometry().headerSize();
+        long chunks = (heap.heapSize() + (1L << chunkShift) - 1) >>> chunkShift;
+        if (chunks > 1 << 29) {
+            throw new IllegalArgumentException("Heap has too many chunks for the tree: " + chunks);
+        }
+        this.heads = new long[(int) chunks];
+        this.leaves = Integer.highestOneBit((int) Math.max(1, 2 * chunks - 1));
+        this.largest = new long[2 * leaves];
+    }
+
+    @Override
+    public int linkWords() {
+        return 2;
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(heads, HeapEngine.NULL);
+        Arrays.fill(largest, 0);
+    }
+
+    @Override
+    public void insert(long block) {
+        int chunk = chunk(block);
+        long size = heap.blockSize(block);
+
+        // Link the block into its chunk's list in address order
+        long prev = HeapEngine.NULL;
+        long next = heads[chunk];
+        while (next != HeapEngine.NULL && next < block) {
+            prev = next;
+            next = next(next);
+        }
+        setNext(block, next);
+        setPrev(block, prev);
+        if (next != HeapEngine.NULL) {
+            setPrev(next, block);
+        }
+        if (prev == HeapEngine.NULL) {
+            heads[chunk] = block;
+        } else {
+            setNext(prev, block);
+        }
+
+        // Raise the path to the root if the block is the chunk's largest
+        if (size > largest[leaves + chunk]) {
+            update(chunk, size);
+        }
+    }
+
+    @Override
+    public void remove(long block) {
+        int chunk = chunk(block);
+        long next = next(block);
+        long prev = prev(block);
+        if (next != HeapEngine.NULL) {
+            setPrev(next, prev);
+        }
+        if (prev == HeapEngine.NULL) {
+            heads[chunk] = next;
+        } else {
+            setNext(prev, next);
+        }
+
+        // Find the chunk's new largest block if this one was the largest
+        if (heap.blockSize(block) == largest[leaves + chunk]) {
+            long size = 0;
+            for (long node = heads[chunk]; node != HeapEngine.NULL; node = next(node)) {
+                size = Math.max(size, heap.blockSize(node));
+            }
+            update(chunk, size);
+        }
+    }
+
+    @Override
+    public long find(long size) {
+        if (largest[1] < size) {
+            visits++;
+            return HeapEngine.NULL;
+        }
+
+        // Descend to the leftmost chunk holding a large enough block
+        int node = 1;
+        while (node < leaves) {
+            visits++;
+            node = largest[2 * node] >= size ? 2 * node : 2 * node + 1;
+        }
+
+        // Take the first large enough block of the chunk
+        for (long block = heads[node - leaves]; block != HeapEngine.NULL; block = next(block)) {
+            visits++;
+            if (heap.blockSize(block) >= size) {
+                return block;
+            }
+        }
+        return HeapEngine.NULL;
+    }
+
+    @Override
+    public long visits() {
+        return visits;
+    }
+
+    /**
+     * Sets the largest free block of a chunk and recomputes the nodes above it.
+     *
+     * @param  chunk Chunk whose leaf changed.
+     * @param  size Size of the largest free block starting in the chunk, or 0 if there is none.
+     */
+    private void update(int chunk, long size) {
+        int node = leaves + chunk;
+        largest[node] = size;
+        for (node >>>= 1; node > 0; node >>>= 1) {
+            long max = Math.max(largest[2 * node], largest[2 * node + 1]);
+            if (largest[node] == max) {
+                break;
+            }
+            largest[node] = max;
+        }
+    }
+
+    /**
+     * Returns the chunk a block starts in.
+     *
+     * @param  block Offset of the block header.
+     * @return Index of the chunk.
+     */
+    private int chunk(long block) {
+        return (int) ((block - heapStart) >>> chunkShift);
+    }
+
+    private long next(long block) {
+        return heap.word(block + nextOffset);
+    }
+
+    private long prev(long block) {
+        return heap.word(block + prevOffset);
+    }
+
+    private void setNext(long block, long next) {
+        heap.setWord(block + nextOffset, next);
+    }
+
+    private void setPrev(long block, long prev) {
+        heap.setWord(block + prevOffset, prev);
+    }
+}
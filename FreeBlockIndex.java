@@ -0,0 +1,62 @@
+package allocator;
+
+/**
+ * FreeBlockIndex keeps track of the free blocks of a HeapEngine and finds a free block that can satisfy an
+ * allocation. The engine notifies the index whenever a block becomes free (after coalescing) and whenever a free block
+ * stops being free (it is allocated or absorbed by coalescing), so implementations never have to rediscover blocks.
+ * Implementations may keep their bookkeeping in the payload of free blocks, after the header.
+ *
+ * @author Brandon Kenter
+ */
+public interface FreeBlockIndex {
+    /**
+     * Binds the index to the heap whose free blocks it tracks. Called once by the heap's constructor.
+     *
+     * @param  heap The heap that owns this index.
+     */
+    void attach(HeapEngine heap);
+
+    /**
+     * Returns the number of header-sized words the index stores in the payload of every free block. The heap never
+     * creates a block too small to hold them.
+     *
+     * @return Number of link words per free block.
+     */
+    int linkWords();
+
+    /**
+     * Forgets every free block. Called when the heap is cleared, before the initial free block is inserted.
+     */
+    void reset();
+
+    /**
+     * Adds a block that has just become free.
+     *
+     * @param  block Offset of the free block header.
+     */
+    void insert(long block);
+
+    /**
+     * Removes a free block that is about to be allocated or absorbed by coalescing. The block's header still holds
+     * its free size when this is called.
+     *
+     * @param  block Offset of the free block header.
+     */
+    void remove(long block);
+
+    /**
+     * Finds a free block of at least the given size.
+     *
+     * @param  size Block size needed including the header.
+     * @return Offset of a fitting free block header, or HeapEngine.NULL if there is none.
+     */
+    long find(long size);
+
+    /**
+     * Returns the total number of blocks examined by find(). The heap's metrics take the difference across a call as
+     * the search length of an allocation.
+     *
+     * @return Number of blocks visited by every search so far.
+     */
+    long visits();
+}
@@ -0,0 +1,215 @@
+package allocator;
+
+/**
+ * FreeBlockTree keeps the free blocks in a binary search tree ordered by size and then by address, so the best or
+ * worst fitting block is found in O(log n). The tree is a treap: every block's priority is a hash of its address,
+ * which keeps the tree balanced in expectation without storing anything but the left and right links, which live in
+ * the first two payload words of every free block.
+ *
+ * @author Brandon Kenter
+ */
+public class FreeBlockTree implements FreeBlockIndex {
+    /**
+     * Which fitting block is chosen for an allocation.
+     */
+    public enum Fit {
+        BEST, // Smallest free block that is large enough
+        WORST // Largest free block
+    }
+
+    private final Fit fit; // Which fitting block is chosen
+    private HeapEngine heap; // Heap whose free blocks are indexed
+    private long leftOffset; // Offset of the left link from the block header
+    private long rightOffset; // Offset of the right link from the block header
+    private long root; // Root of the tree, or NULL if there are no free blocks
+    private long visits; // Blocks examined by find()
+
+    /**
+     * Creates a tree that chooses blocks using the given fit.
+     *
+     * @param  fit Which fitting block is chosen.
+     */
+    public FreeBlockTree(Fit fit) {
+        this.fit = fit;
+    }
+
+    @Override
+    public void attach(HeapEngine heap) {
+        this.heap = heap;
+        this.leftOffset = heap.geometry().headerSize();
+        this.rightOffset = 2L * heap.geometry().headerSize();
+    }
+
+    @Override
+    public int linkWords() {
+        return 2;
+    }
+
+    @Override
+    public void reset() {
+        root = HeapEngine.NULL;
+    }
+
+    @Override
+    public void insert(long block) {
+        setLeft(block, HeapEngine.NULL);
+        setRight(block, HeapEngine.NULL);
+        root = insert(root, block, heap.blockSize(block));
+    }
+
+    @Override
+    public void remove(long block) {
+        root = remove(root, block, heap.blockSize(block));
+    }
+
+    @Override
+    public long find(long size) {
+        // Worst fit: the largest block is the rightmost node
+        if (fit == Fit.WORST) {
+            long node = root;
+            if (node == HeapEngine.NULL) {
+                return HeapEngine.NULL;
+            }
+            visits++;
+            while (right(node) != HeapEngine.NULL) {
+                node = right(node);
+                visits++;
+            }
+            return heap.blockSize(node) >= size ? node : HeapEngine.NULL;
+        }
+
+        // Best fit: the smallest node that is large enough
+        long best = HeapEngine.NULL;
+        long node = root;
+        while (node != HeapEngine.NULL) {
+            visits++;
+            if (heap.blockSize(node) >= size) {
+                best = node;
+                node = left(node);
+            } else {
+                node = right(node);
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public long visits() {
+        return visits;
+    }
+
+    /**
+     * Inserts a node into a subtree, rotating it up while its priority is higher than its parent's.
+     *
+     * @param  subtree Root of the subtree.
+     * @param  node Block being inserted.
+     * @param  size Size of the block being inserted.
+     * @return New root of the subtree.
+     */
+    private long insert(long subtree, long node, long size) {
+        if (subtree == HeapEngine.NULL) {
+            return node;
+        }
+        if (less(node, size, subtree)) {
+            long left = insert(left(subtree), node, size);
+            setLeft(subtree, left);
+            if (priority(left) > priority(subtree)) {
+                setLeft(subtree, right(left));
+                setRight(left, subtree);
+                return left;
+            }
+        } else {
+            long right = insert(right(subtree), node, size);
+            setRight(subtree, right);
+            if (priority(right) > priority(subtree)) {
+                setRight(subtree, left(right));
+                setLeft(right, subtree);
+                return right;
+            }
+        }
+        return subtree;
+    }
+
+    /**
+     * Removes a node from a subtree by replacing it with the merge of its children.
+     *
+     * @param  subtree Root of the subtree containing the node.
+     * @param  node Block being removed.
+     * @param  size Size of the block being removed.
+     * @return New root of the subtree.
+     */
+    private long remove(long subtree, long node, long size) {
+        if (subtree == node) {
+            return merge(left(node), right(node));
+        }
+        if (less(node, size, subtree)) {
+            setLeft(subtree, remove(left(subtree), node, size));
+        } else {
+            setRight(subtree, remove(right(subtree), node, size));
+        }
+        return subtree;
+    }
+
+    /**
+     * Merges two subtrees where every node of the first is ordered before every node of the second.
+     *
+     * @param  a Root of the lower subtree.
+     * @param  b Root of the upper subtree.
+     * @return Root of the merged subtree.
+     */
+    private long merge(long a, long b) {
+        if (a == HeapEngine.NULL) {
+            return b;
+        }
+        if (b == HeapEngine.NULL) {
+            return a;
+        }
+        if (priority(a) > priority(b)) {
+            setRight(a, merge(right(a), b));
+            return a;
+        }
+        setLeft(b, merge(a, left(b)));
+        return b;
+    }
+
+    /**
+     * Returns whether a block of the given size orders before another block by size and then by address.
+     *
+     * @param  block Offset of the block.
+     * @param  size Size of the block.
+     * @param  other Offset of the block to compare against.
+     * @return True if the block orders first.
+     */
+    private boolean less(long block, long size, long other) {
+        long otherSize = heap.blockSize(other);
+        return size < otherSize || (size == otherSize && block < other);
+    }
+
+    /**
+     * Returns the treap priority of a block, a hash of its address.
+     *
+     * @param  block Offset of the block.
+     * @return Priority of the block.
+     */
+    private static long priority(long block) {
+        long h = block * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return h * 0xD6E8FEB86659FD93L;
+    }
+
+    private long left(long block) {
+        return heap.word(block + leftOffset);
+    }
+
+    private long right(long block) {
+        return heap.word(block + rightOffset);
+    }
+
+    private void setLeft(long block, long left) {
+        heap.setWord(block + leftOffset, left);
+    }
+
+    private void setRight(long block, long right) {
+        heap.setWord(block + rightOffset, right);
+    }
+}
@@ -0,0 +1,132 @@
+package allocator;
+
+import java.util.Arrays;
+
+/**
+ * HandleHeap gives out handles to relocatable blocks of a HeapEngine instead of raw pointers, so the heap can be
+ * compacted. A handle is a small positive number that stays valid until the block is freed, and pointer() returns
+ * where the block currently is. When an allocation fails although the heap has enough free space in total, the heap
+ * is compacted by sliding every handle block toward the start of the heap and the allocation is retried.
+ *
+ * Blocks allocated directly from the engine with malloc() can be mixed with handle blocks. They are pinned: a
+ * compaction never moves them, and only gathers the free space around them. Pointers returned by pointer() are only
+ * valid until the next allocation through the handle heap or the next call to compact().
+ *
+ * @author Brandon Kenter
+ */
+public class HandleHeap implements BlockRelocator {
+    private final HeapEngine heap; // Heap holding the blocks
+    private long[] pointers = new long[16]; // Pointer of each handle minus one, or the next free handle negated
+    private int handleCount; // Number of handles ever created
+    private long freeHandle; // First handle available for reuse, or 0 if there is none
+    private final LongLongHashMap handles = new LongLongHashMap(); // Pointer of each handle block to its handle
+
+    /**
+     * Creates a handle heap over an engine.
+     *
+     * @param  heap Heap holding the blocks.
+     */
+    public HandleHeap(HeapEngine heap) {
+        this.heap = heap;
+    }
+
+    /**
+     * Allocates a relocatable block, compacting the heap first if the request only fails because of fragmentation.
+     *
+     * @param  size Number of bytes requested.
+     * @return Handle of the block, or HeapEngine.NULL if the request cannot be satisfied.
+     */
+    public long allocate(long size) {
+        long ptr = heap.malloc(size);
+
+        // Compact only if the free space can hold the block including its header and padding
+        if (ptr == HeapEngine.NULL && size > 0 && size < heap.freeSize()
+                && heap.freeSize() >= heap.blockSizeFor(size)) {
+            compact();
+            ptr = heap.malloc(size);
+        }
+        if (ptr == HeapEngine.NULL) {
+            return HeapEngine.NULL;
+        }
+
+        // Reuse a freed handle, or create a new one
+        long handle = freeHandle;
+        if (handle != 0) {
+            freeHandle = -pointers[(int) handle - 1];
+        } else {
+            if (handleCount == pointers.length) {
+                pointers = Arrays.copyOf(pointers, handleCount * 2);
+            }
+            handle = ++handleCount;
+        }
+        pointers[(int) handle - 1] = ptr;
+        handles.put(ptr, handle);
+        return handle;
+    }
+
+    /**
+     * Frees the block of a handle. The handle may be reused by a later allocation.
+     *
+     * @param  handle Handle returned by allocate().
+     */
+    public void free(long handle) {
+        long ptr = pointer(handle);
+        heap.free(ptr);
+        handles.remove(ptr);
+        pointers[(int) handle - 1] = -freeHandle;
+        freeHandle = handle;
+    }
+
+    /**
+     * Returns where the block of a handle currently is.
+     *
+     * @param  handle Handle returned by allocate().
+     * @return Offset of the block's payload.
+     */
+    public long pointer(long handle) {
+        long ptr = handle > 0 && handle <= handleCount ? pointers[(int) handle - 1] : 0;
+        if (ptr <= 0) {
+            throw new IllegalArgumentException("Invalid handle " + handle);
+        }
+        return ptr;
+    }
+
+    /**
+     * Slides every handle block toward the start of the heap, leaving the free space in as few blocks as the pinned
+     * blocks allow.
+     */
+    public void compact() {
+        heap.compact(this);
+    }
+
+    /**
+     * Frees every block of the heap, including pinned blocks, and invalidates every handle.
+     */
+    public void clear() {
+        heap.clear();
+        handles.clear();
+        handleCount = 0;
+        freeHandle = 0;
+    }
+
+    /**
+     * Returns the heap holding the blocks.
+     *
+     * @return The heap.
+     */
+    public HeapEngine heap() {
+        return heap;
+    }
+
+    @Override
+    public boolean canMove(long ptr) {
+        return handles.containsKey(ptr);
+    }
+
+    @Override
+    public void moved(long from, long to) {
+        long handle = handles.remove(from);
+        handles.put(to, handle);
+        pointers[(int) handle - 1] = to;
+    }
+}
@@ -0,0 +1,1047 @@
+package allocator;
+
+import java.util.Arrays;
+
+/**
+ * HeapEngine is the headless implementation of the heap. It delegates the search for a free block to a FreeBlockIndex,
+ * which defaults to first-fit over the implicit list of headers. Freed blocks are coalesced immediately by default, or
+ * in batched passes when coalescing is deferred. It does not depend on JavaFX so it can be driven directly by tests,
+ * tools and the UI alike.
+ *
+ * The layout of the heap is described by a HeapGeometry. Every block starts with a header word of the geometry's
+ * header width packed as Size | Previous Bit << 1 | Allocated Bit, so sizes are always multiples of 8 and the low
+ * three bits are free to hold the status bits. Free blocks also store their size in a footer (their last word) so that
+ * a freed block can find and coalesce with a free previous block. The end of the heap is marked by a header with size
+ * 0 and the allocated bit set. Offsets are longs so heaps can span several gigabytes, and no objects are created by
+ * malloc() or free().
+ *
+ * @author Brandon Kenter
+ */
+public class HeapEngine implements Allocator {
+    public static final long NULL = 0; // Pointer returned when an allocation fails
+
+    static final long A_BIT = 1; // Allocated bit of a header
+    static final long P_BIT = 2; // Previous block allocated bit of a header
+    static final long SIZE_MASK = ~7L; // Mask to extract the block size from a header
+    static final int PASS_BLOCKS_PER_FREE = 8; // Most blocks a threshold-triggered coalesce pass visits per free
+
+    private final HeapGeometry geometry; // Layout of the heap
+    private final HeapMemory memory; // Heap memory
+    private final FreeBlockIndex index; // Tracks the free blocks and finds a fit for allocations
+    private final HeapStats stats; // Running totals of the allocated and free blocks
+    private HeapMetrics metrics; // Instrumentation of the hot paths, or null when disabled
+    private HeapEvents events; // Ring the block changes are published to, or null when disabled
+    private final int headerSize; // Width of a header and footer in bytes
+    private final long minBlockSize; // Smallest block that can hold a header and a footer
+    private final long heapStart; // Offset of the first block header
+    private final long heapSize; // Size of the allocatable space in the heap
+    private boolean deferred; // Whether frees leave coalescing to a later pass
+    private int coalesceThreshold; // Deferred frees that trigger a coalesce pass, or 0 to wait for a failed allocation
+    private int pendingFrees; // Frees since the last coalesce pass
+
+    /**
+     * Creates a heap with the given amount of allocatable space, 4-byte headers and four reserved bytes at each end
+     * of the heap to keep payloads 8-byte aligned.
+     *
+     * @param  heapSize Size of the allocatable space in bytes, a positive multiple of 8.
+     */
+    public HeapEngine(long heapSize) {
+        this(new HeapGeometry(heapSize));
+    }
+
+    /**
+     * Creates a heap with the given layout that finds free blocks by walking the implicit list of headers.
+     *
+     * @param  geometry Layout of the heap.
+     */
+    public HeapEngine(HeapGeometry geometry) {
+        this(geometry, new ImplicitFreeList());
+    }
+
+    /**
+     * Creates a heap with the given layout that chooses free blocks using the given placement policy.
+     *
+     * @param  geometry Layout of the heap.
+     * @param  policy Placement policy.
+     */
+    public HeapEngine(HeapGeometry geometry, PlacementPolicy policy) {
+        this(geometry, policy.newIndex());
+    }
+
+    /**
+     * Creates a heap with the given layout that finds free blocks using the given index.
+     *
+     * @param  geometry Layout of the heap.
+     * @param  index Index of free blocks, not shared with any other heap.
+     */
+    public HeapEngine(HeapGeometry geometry, FreeBlockIndex index) {
+        this(geometry, index, new ArrayHeapMemory(geometry.totalSize()), true, 0);
+    }
+
+    /**
+     * Creates a heap with the given layout in the given memory. A formatted heap starts as a single free block;
+     * otherwise the blocks already in memory are kept and the index is rebuilt from them.
+     *
+     * @param  geometry Layout of the heap.
+     * @param  index Index of free blocks, not shared with any other heap.
+     * @param  memory Memory holding the heap, at least the geometry's total size.
+     * @param  format Whether to initialize the heap as empty rather than keep the existing blocks.
+     * @param  blockFloor Smallest block the heap may create, raised to what the index needs, so a heap reopened with
+     *                    an index needing fewer links never creates blocks the original index cannot hold.
+     * @throws IllegalStateException If the existing blocks are not a valid heap.
+     */
+    HeapEngine(HeapGeometry geometry, FreeBlockIndex index, HeapMemory memory, boolean format, long blockFloor) {
+        if (memory.size() < geometry.totalSize()) {
+            throw new IllegalArgumentException("Memory is smaller than the heap: " + memory.size());
+        }
+        this.geometry = geometry;
+        this.memory = memory;
+        this.index = index;
+        this.headerSize = geometry.headerSize();
+        this.minBlockSize = Math.max(blockFloor, minBlockSize(geometry, index));
+        if (minBlockSize > geometry.heapSize()) {
+            throw new IllegalArgumentException("Heap is too small to hold a free block: " + geometry.heapSize());
+        }
+        this.heapStart = geometry.heapStart();
+        this.heapSize = geometry.heapSize();
+        this.stats = new HeapStats(heapSize);
+        index.attach(this);
+        if (format) {
+            clear();
+        } else {
+            recover();
+        }
+    }
+
+    /**
+     * Frees every block by re-initializing the heap as a single free block followed by the end mark.
+     */
+    @Override
+    public void clear() {
+        setWord(heapStart, heapSize | P_BIT);
+        setWord(heapStart + heapSize - headerSize, heapSize);
+        setWord(heapStart + heapSize, A_BIT);
+        index.reset();
+        stats.reset();
+        insertFree(heapStart);
+        pendingFrees = 0;
+        if (events != null) {
+            events.publishResync();
+        }
+    }
+
+    /**
+     * Rebuilds the index from the blocks already in memory, checking on the way that they tile the heap exactly and
+     * end with the end mark.
+     *
+     * @throws IllegalStateException If the blocks are not a valid heap.
+     */
+    private void recover() {
+        index.reset();
+        stats.reset();
+        long heapEnd = heapStart + heapSize;
+        long block = heapStart;
+        boolean prevAllocated = true;
+        while (block < heapEnd) {
+            long header = word(block);
+            long size = header & SIZE_MASK;
+            if (size < minBlockSize || size > heapEnd - block || ((header & P_BIT) != 0) != prevAllocated) {
+                throw new IllegalStateException("Corrupt block header at " + block);
+            }
+            prevAllocated = (header & A_BIT) != 0;
+            if (!prevAllocated) {
+                if (word(block + size - headerSize) != size) {
+                    throw new IllegalStateException("Corrupt block footer at " + block);
+                }
+                insertFree(block);
+            } else {
+                stats.allocatedBlocksChanged(1);
+            }
+            block += size;
+        }
+        if ((word(heapEnd) & ~P_BIT) != A_BIT || ((word(heapEnd) & P_BIT) != 0) != prevAllocated) {
+            throw new IllegalStateException("Missing end mark at " + heapEnd);
+        }
+        pendingFrees = 0;
+    }
+
+    /**
+     * Defers coalescing: frees only mark their block as free, and adjacent free blocks are merged in a single pass
+     * over the heap when an allocation fails to find a fit or when the given number of frees have been deferred. A
+     * pass visits every block, so the threshold is raised to one free per PASS_BLOCKS_PER_FREE blocks in the heap,
+     * which keeps the cost of passes per free constant however many blocks the heap holds.
+     *
+     * @param  freeThreshold Least number of deferred frees that triggers a coalesce pass, or 0 to only coalesce when
+     *                       an allocation fails.
+     */
+    public void deferCoalescing(int freeThreshold) {
+        if (freeThreshold < 0) {
+            throw new IllegalArgumentException("Free threshold must not be negative: " + freeThreshold);
+        }
+        deferred = true;
+        coalesceThreshold = freeThreshold;
+    }
+
+    /**
+     * Coalesces every pending free block and returns to coalescing on every free.
+     */
+    public void coalesceImmediately() {
+        coalesce();
+        deferred = false;
+    }
+
+    /**
+     * Merges every run of adjacent free blocks into a single free block in one pass over the heap.
+     */
+    public void coalesce() {
+        long block = heapStart;
+        long header = word(block);
+        while ((header & SIZE_MASK) != 0) {
+            long size = header & SIZE_MASK;
+            long next = block + size;
+            long nextHeader = word(next);
+
+            // Absorb every free block that follows a free block
+            if ((header & A_BIT) == 0 && (nextHeader & A_BIT) == 0) {
+                removeFree(block);
+                do {
+                    removeFree(next);
+                    if (metrics != null) {
+                        metrics.coalesceWithNextRecorded();
+                    }
+                    size += nextHeader & SIZE_MASK;
+                    next = block + size;
+                    nextHeader = word(next);
+                } while ((nextHeader & A_BIT) == 0);
+                setWord(block, size | (header & P_BIT));
+                setWord(next - headerSize, size);
+                insertFree(block);
+                if (events != null) {
+                    events.publish(HeapEvents.COALESCE, block, size);
+                }
+            }
+            block = next;
+            header = nextHeader;
+        }
+        pendingFrees = 0;
+    }
+
+    /**
+     * Slides every relocatable allocated block toward the start of the heap, copying its contents and reporting its
+     * new location to the relocator, so that the free space between pinned blocks is gathered into one free block
+     * before each pinned block and one at the end of the heap. A gap before a pinned block that is too small to hold
+     * a free block is added to the allocated block before it. The free block index is rebuilt afterwards.
+     *
+     * @param  relocator Decides which blocks may move and is told where they went.
+     */
+    public void compact(BlockRelocator relocator) {
+        index.reset();
+        stats.reset();
+        long heapEnd = heapStart + heapSize;
+        long dest = heapStart; // Where the next relocatable block goes
+        long last = NULL; // Last allocated block at its final position
+        long block = heapStart;
+        while (block < heapEnd) {
+            long header = word(block);
+            long size = header & SIZE_MASK;
+            if ((header & A_BIT) != 0) {
+                stats.allocatedBlocksChanged(1);
+                if (relocator.canMove(block + headerSize)) {
+                    // Slide the block down to the end of the blocks already placed
+                    if (dest != block) {
+                        copyPayload(block + headerSize, this, dest + headerSize, size - headerSize);
+                        setWord(dest, size | P_BIT | A_BIT);
+                        relocator.moved(block + headerSize, dest + headerSize);
+                    } else {
+                        setWord(dest, header | P_BIT);
+                    }
+                    last = dest;
+                    dest += size;
+                } else {
+                    // Leave the pinned block in place, freeing the gap before it
+                    setWord(block, header | P_BIT);
+                    if (block != dest) {
+                        fillGap(dest, block - dest, last);
+                    }
+                    last = block;
+                    dest = block + size;
+                }
+            }
+            block += size;
+        }
+        if (heapEnd != dest) {
+            fillGap(dest, heapEnd - dest, last);
+        } else {
+            setWord(heapEnd, A_BIT | P_BIT);
+        }
+        pendingFrees = 0;
+        if (events != null) {
+            events.publishResync();
+        }
+    }
+
+    /**
+     * Allocates a block with room for at least the requested number of bytes. The block size includes the header and
+     * is padded to a multiple of 8. The free block chosen by the index is split when the remainder can hold another
+     * block.
+     *
+     * @param  size Number of bytes requested.
+     * @return Offset of the allocated payload, or NULL if the request cannot be satisfied.
+     */
+    @Override
+    public long malloc(long size) {
+        if (metrics == null) {
+            return allocate(size);
+        }
+        long start = System.nanoTime();
+        long visits = index.visits();
+        long ptr = allocate(size);
+        metrics.mallocRecorded(size, index.visits() - visits, System.nanoTime() - start, ptr == NULL);
+        return ptr;
+    }
+
+    /**
+     * Allocates a block as described by malloc() without recording metrics.
+     *
+     * @param  size Number of bytes requested.
+     * @return Offset of the allocated payload, or NULL if the request cannot be satisfied.
+     */
+    private long allocate(long size) {
+        if (size <= 0 || size > heapSize - headerSize) {
+            return NULL;
+        }
+        long blockSize = blockSizeFor(size);
+
+        // Find a free block with enough size, coalescing pending frees if there is none
+        long block = index.find(blockSize);
+        if (block == NULL && pendingFrees > 0) {
+            coalesce();
+            block = index.find(blockSize);
+        }
+        if (block == NULL) {
+            return NULL;
+        }
+        place(block, word(block), blockSize);
+        stats.allocatedBlocksChanged(1);
+        return block + headerSize;
+    }
+
+    /**
+     * Allocates a block for each element of the pointer array, all with room for the same number of bytes. See
+     * malloc(long[], long[]).
+     *
+     * @param  size Number of bytes requested for every block.
+     * @param  ptrs Receives the offset of each allocated payload, or NULL where a request cannot be satisfied.
+     * @return Number of blocks allocated.
+     */
+    public int malloc(long size, long[] ptrs) {
+        return mallocBatch(size, null, ptrs);
+    }
+
+    /**
+     * Allocates a block for each requested size. Each free block found is carved into as many consecutive blocks as
+     * it can hold. When the largest free block can hold all of the remaining requests the index is asked for room for
+     * all of them first, so a batch that fits in one free block is allocated with a single search, and a search for
+     * the whole remainder never fails and walks the heap in vain.
+     *
+     * @param  sizes Number of bytes requested for each block.
+     * @param  ptrs Receives the offset of each allocated payload, or NULL where a request cannot be satisfied. Must be
+     *              at least as long as sizes.
+     * @return Number of blocks allocated.
+     */
+    public int malloc(long[] sizes, long[] ptrs) {
+        if (ptrs.length < sizes.length) {
+            throw new IllegalArgumentException("Pointer array is shorter than the sizes: " + ptrs.length);
+        }
+        return mallocBatch(0, sizes, ptrs);
+    }
+
+    /**
+     * Frees the block that holds the given payload and immediately coalesces it with free adjacent blocks, unless
+     * coalescing is deferred.
+     *
+     * @param  ptr Offset of the payload returned by malloc().
+     */
+    @Override
+    public void free(long ptr) {
+        long block = allocatedBlock(ptr, "free");
+        stats.allocatedBlocksChanged(-1);
+        if (metrics != null) {
+            metrics.freeRecorded(1);
+        }
+        long header = word(block);
+        long size = header & SIZE_MASK;
+        long pBit = header & P_BIT;
+        if (events != null) {
+            events.publish(HeapEvents.FREE, block, size);
+        }
+
+        // Only flip the allocation bit when coalescing is deferred
+        if (deferred) {
+            setWord(block, size | pBit);
+            setWord(block + size - headerSize, size);
+            setWord(block + size, word(block + size) & ~P_BIT);
+            insertFree(block);
+
+            // Only pass over the heap once enough frees are pending to pay for visiting every block
+            if (++pendingFrees >= coalesceThreshold && coalesceThreshold > 0
+                    && pendingFrees >= (stats.allocatedBlocks() + stats.freeBlocks()) / PASS_BLOCKS_PER_FREE) {
+                coalesce();
+            }
+            return;
+        }
+
+        // Coalesce with next if it is free and not the end of the heap
+        long nextHeader = word(block + size);
+        if ((nextHeader & A_BIT) == 0) {
+            removeFree(block + size);
+            size += nextHeader & SIZE_MASK;
+            if (metrics != null) {
+                metrics.coalesceWithNextRecorded();
+            }
+        }
+
+        // Coalesce with previous if it is free
+        if (pBit == 0) {
+            long prevSize = word(block - headerSize);
+            block -= prevSize;
+            size += prevSize;
+            pBit = word(block) & P_BIT;
+            removeFree(block);
+            if (metrics != null) {
+                metrics.coalesceWithPreviousRecorded();
+            }
+        }
+
+        // Write header and footer of the free block and clear next's pBit
+        setWord(block, size | pBit);
+        setWord(block + size - headerSize, size);
+        setWord(block + size, word(block + size) & ~P_BIT);
+        insertFree(block);
+        if (events != null && size != (header & SIZE_MASK)) {
+            events.publish(HeapEvents.COALESCE, block, size);
+        }
+    }
+
+    /**
+     * Frees a batch of blocks. The pointers are sorted by address and the heap is swept once from left to right, so a
+     * run of adjacent blocks freed together is merged with its free neighbours into one free block with a single
+     * header, footer and index update, rather than coalescing once per block. NULL entries are ignored, so the
+     * result of a batch malloc can be freed directly. Every pointer is checked before any block is freed.
+     *
+     * @param  ptrs Offsets of payloads returned by malloc(), or NULL. The array is sorted in place.
+     */
+    public void free(long[] ptrs) {
+        Arrays.sort(ptrs);
+        int i = 0;
+        while (i < ptrs.length && ptrs[i] == NULL) {
+            i++;
+        }
+        for (int k = i; k < ptrs.length; k++) {
+            allocatedBlock(ptrs[k], "free");
+            if (k > i && ptrs[k] == ptrs[k - 1]) {
+                throw new IllegalArgumentException("Invalid free of pointer " + ptrs[k]);
+            }
+        }
+        stats.allocatedBlocksChanged(i - ptrs.length);
+        if (metrics != null) {
+            metrics.freeRecorded(ptrs.length - i);
+        }
+
+        while (i < ptrs.length) {
+            long block = ptrs[i++] - headerSize;
+            long header = word(block);
+            long size = header & SIZE_MASK;
+            long pBit = header & P_BIT;
+            if (events != null) {
+                events.publish(HeapEvents.FREE, block, size);
+            }
+
+            // Coalesce with previous if it is free
+            if (pBit == 0) {
+                long prevSize = word(block - headerSize);
+                block -= prevSize;
+                size += prevSize;
+                pBit = word(block) & P_BIT;
+                removeFree(block);
+                if (metrics != null) {
+                    metrics.coalesceWithPreviousRecorded();
+                }
+            }
+
+            // Extend the run over following blocks that are freed in this batch or already free
+            while (true) {
+                long next = block + size;
+                long nextHeader = word(next);
+                if (i < ptrs.length && ptrs[i] - headerSize == next) {
+                    i++;
+                    if (events != null) {
+                        events.publish(HeapEvents.FREE, next, nextHeader & SIZE_MASK);
+                    }
+                } else if ((nextHeader & A_BIT) == 0) {
+                    removeFree(next);
+                } else {
+                    break;
+                }
+                size += nextHeader & SIZE_MASK;
+                if (metrics != null) {
+                    metrics.coalesceWithNextRecorded();
+                }
+            }
+
+            // Write header and footer of the free block and clear next's pBit
+            setWord(block, size | pBit);
+            setWord(block + size - headerSize, size);
+            setWord(block + size, word(block + size) & ~P_BIT);
+            insertFree(block);
+            if (events != null && size != (header & SIZE_MASK)) {
+                events.publish(HeapEvents.COALESCE, block, size);
+            }
+        }
+    }
+
+    /**
+     * Resizes an allocated block. A smaller block is shrunk in place, splitting off the tail when it can hold another
+     * block. A larger block grows in place by absorbing the next block when it is free and large enough. Otherwise
+     * the payload is copied to a new block and the old block is freed.
+     *
+     * @param  ptr Offset of the payload returned by malloc(), or NULL.
+     * @param  size Number of bytes requested.
+     * @return Offset of the resized payload, or NULL if the block was freed or the request cannot be satisfied.
+     */
+    @Override
+    public long realloc(long ptr, long size) {
+        if (ptr == NULL) {
+            return malloc(size);
+        }
+        long block = allocatedBlock(ptr, "realloc");
+        if (size <= 0) {
+            free(ptr);
+            return NULL;
+        }
+        if (size > heapSize - headerSize) {
+            return NULL;
+        }
+        long header = word(block);
+        long oldSize = header & SIZE_MASK;
+        long newSize = blockSizeFor(size);
+
+        // Shrink in place, freeing the tail when it can hold a block
+        if (newSize <= oldSize) {
+            if (oldSize - newSize >= minBlockSize) {
+                setWord(block, newSize | (header & P_BIT) | A_BIT);
+                if (events != null) {
+                    events.publish(HeapEvents.ALLOCATE, block, newSize);
+                }
+                releaseTail(block + newSize, oldSize - newSize);
+                if (metrics != null) {
+                    metrics.splitRecorded();
+                }
+            }
+            return ptr;
+        }
+
+        // Grow in place if the next block is free and large enough
+        long next = block + oldSize;
+        long nextHeader = word(next);
+        if ((nextHeader & A_BIT) == 0 && oldSize + (nextHeader & SIZE_MASK) >= newSize) {
+            place(next, nextHeader, newSize - oldSize);
+            setWord(block, (oldSize + (word(next) & SIZE_MASK)) | (header & P_BIT) | A_BIT);
+            if (events != null) {
+                events.publish(HeapEvents.ALLOCATE, block, word(block) & SIZE_MASK);
+            }
+            return ptr;
+        }
+
+        // Move to a new block
+        long newPtr = malloc(size);
+        if (newPtr == NULL) {
+            return NULL;
+        }
+        copyPayload(ptr, this, newPtr, oldSize - headerSize);
+        free(ptr);
+        return newPtr;
+    }
+
+    /**
+     * Returns the number of payload bytes available in an allocated block.
+     *
+     * @param  ptr Offset of a payload returned by malloc().
+     * @return Block size minus the header.
+     * @throws IllegalArgumentException If the pointer is not an allocated block.
+     */
+    @Override
+    public long usableSize(long ptr) {
+        return blockSize(allocatedBlock(ptr, "usableSize")) - headerSize;
+    }
+
+    /**
+     * Returns the total size of the allocated blocks in the heap.
+     *
+     * @return Allocated size in bytes including headers and padding.
+     */
+    @Override
+    public long allocatedSize() {
+        return stats.allocatedSize();
+    }
+
+    /**
+     * Returns the total size of the free blocks in the heap.
+     *
+     * @return Free size in bytes.
+     */
+    @Override
+    public long freeSize() {
+        return stats.freeSize();
+    }
+
+    /**
+     * Attaches metrics that instrument allocations, frees, splits and coalescing from now on.
+     *
+     * @param  metrics Metrics to update, or null to disable instrumentation.
+     */
+    public void setMetrics(HeapMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the metrics attached to the heap.
+     *
+     * @return Metrics, or null if instrumentation is disabled.
+     */
+    public HeapMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Publishes every block change to an event ring from now on, so a view can follow the heap without walking it.
+     *
+     * @param  events Ring to publish to, or null to stop publishing.
+     */
+    public void setEvents(HeapEvents events) {
+        this.events = events;
+    }
+
+    /**
+     * Returns the event ring the heap publishes to.
+     *
+     * @return Event ring, or null if events are not published.
+     */
+    public HeapEvents events() {
+        return events;
+    }
+
+    /**
+     * Returns the running statistics of the heap, which are kept up to date by every operation.
+     *
+     * @return Heap statistics.
+     */
+    public HeapStats stats() {
+        return stats;
+    }
+
+    /**
+     * Returns the layout of the heap.
+     *
+     * @return Heap geometry.
+     */
+    public HeapGeometry geometry() {
+        return geometry;
+    }
+
+    /**
+     * Returns the size of the allocatable space in the heap.
+     *
+     * @return Heap size in bytes.
+     */
+    public long heapSize() {
+        return heapSize;
+    }
+
+    /**
+     * Returns the header offset of the first block in the heap.
+     *
+     * @return Offset of the first header.
+     */
+    public long firstBlock() {
+        return heapStart;
+    }
+
+    /**
+     * Returns the header offset of the block following the given block.
+     *
+     * @param  block Offset of a block header.
+     * @return Offset of the next header, which may be the end mark.
+     */
+    public long nextBlock(long block) {
+        return block + blockSize(block);
+    }
+
+    /**
+     * Returns the header offset of the block preceding the given block. Only valid when the previous block is free,
+     * since allocated blocks do not have a footer.
+     *
+     * @param  block Offset of a block header whose previous block is free.
+     * @return Offset of the previous header.
+     */
+    public long prevBlock(long block) {
+        return block - word(block - headerSize);
+    }
+
+    /**
+     * Returns the size of the given block including its header.
+     *
+     * @param  block Offset of a block header.
+     * @return Block size in bytes, 0 for the end mark.
+     */
+    public long blockSize(long block) {
+        return word(block) & SIZE_MASK;
+    }
+
+    /**
+     * Returns whether the given block is allocated.
+     *
+     * @param  block Offset of a block header.
+     * @return True if the allocated bit is set.
+     */
+    public boolean isAllocated(long block) {
+        return (word(block) & A_BIT) != 0;
+    }
+
+    /**
+     * Returns whether the block preceding the given block is allocated.
+     *
+     * @param  block Offset of a block header.
+     * @return True if the previous bit is set.
+     */
+    public boolean isPrevAllocated(long block) {
+        return (word(block) & P_BIT) != 0;
+    }
+
+    /**
+     * Returns whether the given header is the end mark of the heap.
+     *
+     * @param  block Offset of a block header.
+     * @return True if the header is the end mark.
+     */
+    public boolean isEnd(long block) {
+        return (word(block) & SIZE_MASK) == 0;
+    }
+
+    /**
+     * Copies payload bytes from this heap to a block of the given heap, which may be this heap.
+     *
+     * @param  from Offset of the source payload in this heap.
+     * @param  dest Heap holding the destination payload.
+     * @param  to Offset of the destination payload in dest.
+     * @param  length Number of bytes to copy, a multiple of 4.
+     */
+    void copyPayload(long from, HeapEngine dest, long to, long length) {
+        long i = 0;
+        for (; i + 8 <= length; i += 8) {
+            dest.memory.putLong(to + i, memory.getLong(from + i));
+        }
+        if (i < length) {
+            dest.memory.putInt(to + i, memory.getInt(from + i));
+        }
+    }
+
+    /**
+     * Returns the smallest block the heap creates, which is large enough for the index's links.
+     *
+     * @return Minimum block size in bytes.
+     */
+    long minBlockSize() {
+        return minBlockSize;
+    }
+
+    /**
+     * Returns the smallest block a heap with the given layout and index creates.
+     *
+     * @param  geometry Layout of the heap.
+     * @param  index Index of free blocks.
+     * @return Minimum block size in bytes, large enough for a header, a footer and the index's links.
+     */
+    static long minBlockSize(HeapGeometry geometry, FreeBlockIndex index) {
+        int headerSize = geometry.headerSize();
+        return Math.max(geometry.minBlockSize(), ((2L + index.linkWords()) * headerSize + 7) & SIZE_MASK);
+    }
+
+    /**
+     * Returns the block size needed to hold a payload of the requested size.
+     *
+     * @param  size Number of bytes requested.
+     * @return Header plus payload size padded to a multiple of 8, at least the minimum block size.
+     */
+    long blockSizeFor(long size) {
+        return Math.max((size + headerSize + 7) & SIZE_MASK, minBlockSize);
+    }
+
+    /**
+     * Marks a free block as allocated, splitting off the remainder as a new free block when it can hold a header
+     * and a footer.
+     *
+     * @param  block Offset of the free block header.
+     * @param  header Current header of the free block.
+     * @param  blockSize Size of the block to allocate.
+     */
+    private void place(long block, long header, long blockSize) {
+        long freeSize = (header & SIZE_MASK) - blockSize;
+        long pBit = header & P_BIT;
+        removeFree(block);
+        if (freeSize >= minBlockSize) {
+            setWord(block, blockSize | pBit | A_BIT);
+            setWord(block + blockSize, freeSize | P_BIT);
+            setWord(block + blockSize + freeSize - headerSize, freeSize);
+            insertFree(block + blockSize);
+            if (metrics != null) {
+                metrics.splitRecorded();
+            }
+            if (events != null) {
+                events.publish(HeapEvents.ALLOCATE, block, blockSize);
+                events.publish(HeapEvents.SPLIT, block + blockSize, freeSize);
+            }
+        } else {
+            setWord(block, header | A_BIT);
+            long next = block + (header & SIZE_MASK);
+            setWord(next, word(next) | P_BIT);
+            if (events != null) {
+                events.publish(HeapEvents.ALLOCATE, block, header & SIZE_MASK);
+            }
+        }
+    }
+
+    /**
+     * Allocates a batch of blocks, carving consecutive blocks out of each free block found.
+     *
+     * @param  size Number of bytes requested for every block when sizes is null.
+     * @param  sizes Number of bytes requested for each block, or null.
+     * @param  ptrs Receives the offset of each allocated payload, or NULL.
+     * @return Number of blocks allocated.
+     */
+    private int mallocBatch(long size, long[] sizes, long[] ptrs) {
+        int count = sizes == null ? ptrs.length : sizes.length;
+
+        // Total block size of the valid requests, so a single free block can be asked for all of them
+        long remaining = 0;
+        for (int i = 0; i < count; i++) {
+            long request = sizes == null ? size : sizes[i];
+            if (request > 0 && request <= heapSize - headerSize) {
+                remaining += blockSizeFor(request);
+            }
+        }
+
+        int allocated = 0;
+        int i = 0;
+        long start = metrics == null ? 0 : System.nanoTime();
+        long visits = index.visits();
+        while (i < count) {
+            long request = sizes == null ? size : sizes[i];
+            if (request <= 0 || request > heapSize - headerSize) {
+                ptrs[i++] = NULL;
+                if (metrics != null) {
+                    start = batchMallocRecorded(request, visits, start, true);
+                    visits = index.visits();
+                }
+                continue;
+            }
+            long blockSize = blockSizeFor(request);
+
+            // Find room for every remaining request when the largest free block shows there is some, or else for this
+            // one, coalescing pending frees if there is none
+            long block = remaining > blockSize && remaining <= stats.largestFreeBlock() ? index.find(remaining) : NULL;
+            if (block == NULL) {
+                block = index.find(blockSize);
+            }
+            if (block == NULL && pendingFrees > 0) {
+                coalesce();
+                block = index.find(blockSize);
+            }
+            if (block == NULL) {
+                ptrs[i++] = NULL;
+                remaining -= blockSize;
+                if (metrics != null) {
+                    start = batchMallocRecorded(request, visits, start, true);
+                    visits = index.visits();
+                }
+                continue;
+            }
+
+            // Carve blocks off the front of the free block while the next request fits
+            long header = word(block);
+            long freeSize = header & SIZE_MASK;
+            long pBit = header & P_BIT;
+            removeFree(block);
+            while (true) {
+                long rest = freeSize - blockSize;
+                long taken = rest >= minBlockSize ? blockSize : freeSize;
+                setWord(block, taken | pBit | A_BIT);
+                if (events != null) {
+                    events.publish(HeapEvents.ALLOCATE, block, taken);
+                }
+                ptrs[i++] = block + headerSize;
+                allocated++;
+                if (metrics != null) {
+                    start = batchMallocRecorded(request, visits, start, false);
+                    visits = index.visits();
+                }
+                remaining -= blockSize;
+                block += taken;
+                freeSize -= taken;
+                pBit = P_BIT;
+                if (freeSize == 0 || i == count) {
+                    break;
+                }
+                request = sizes == null ? size : sizes[i];
+                if (request <= 0 || request > heapSize - headerSize) {
+                    break;
+                }
+                blockSize = blockSizeFor(request);
+                if (blockSize > freeSize) {
+                    break;
+                }
+            }
+
+            // Return what is left of the free block to the index
+            if (freeSize > 0) {
+                setWord(block, freeSize | P_BIT);
+                setWord(block + freeSize - headerSize, freeSize);
+                insertFree(block);
+                if (metrics != null) {
+                    metrics.splitRecorded();
+                }
+                if (events != null) {
+                    events.publish(HeapEvents.SPLIT, block, freeSize);
+                }
+            } else {
+                setWord(block, word(block) | P_BIT);
+            }
+        }
+        stats.allocatedBlocksChanged(allocated);
+        return allocated;
+    }
+
+    /**
+     * Records one request of a batch allocation, charging it the blocks searched and the time taken since the
+     * previous request of the batch.
+     *
+     * @param  request Number of bytes requested.
+     * @param  visits Blocks examined by the index when the previous request was recorded.
+     * @param  start Time the previous request was recorded in nanoseconds.
+     * @param  failed Whether the request returned NULL.
+     * @return Time this request was recorded in nanoseconds.
+     */
+    private long batchMallocRecorded(long request, long visits, long start, boolean failed) {
+        long now = System.nanoTime();
+        metrics.mallocRecorded(request, index.visits() - visits, now - start, failed);
+        return now;
+    }
+
+    /**
+     * Returns the block holding an allocated payload, rejecting pointers that were not returned by malloc().
+     *
+     * @param  ptr Offset of the payload.
+     * @param  operation Name of the operation for the error message.
+     * @return Offset of the block header.
+     */
+    long allocatedBlock(long ptr, String operation) {
+        long block = ptr - headerSize;
+        if (ptr % 8 != 0 || block < heapStart || block >= heapStart + heapSize || (word(block) & A_BIT) == 0) {
+            throw new IllegalArgumentException("Invalid " + operation + " of pointer " + ptr);
+        }
+        return block;
+    }
+
+    /**
+     * Adds a block that has just become free to the index and the statistics.
+     *
+     * @param  block Offset of the free block header.
+     */
+    private void insertFree(long block) {
+        index.insert(block);
+        stats.freeBlockAdded(word(block) & SIZE_MASK);
+    }
+
+    /**
+     * Removes a free block that is about to be allocated or absorbed from the index and the statistics. Must be
+     * called while the block's header still holds its free size.
+     *
+     * @param  block Offset of the free block header.
+     */
+    private void removeFree(long block) {
+        stats.freeBlockRemoved(word(block) & SIZE_MASK);
+        index.remove(block);
+    }
+
+    /**
+     * Turns the space between the blocks placed by a compaction and the next block kept in place into a free block,
+     * or adds it to the last placed block when it is too small to hold one.
+     *
+     * @param  gap Offset of the space.
+     * @param  size Size of the space.
+     * @param  last Last allocated block placed before the space, or NULL if there is none.
+     */
+    private void fillGap(long gap, long size, long last) {
+        long next = gap + size;
+        if (size >= minBlockSize) {
+            setWord(gap, size | P_BIT);
+            setWord(next - headerSize, size);
+            setWord(next, word(next) & ~P_BIT);
+            insertFree(gap);
+        } else {
+            setWord(last, word(last) + size);
+            setWord(next, word(next) | P_BIT);
+        }
+    }
+
+    /**
+     * Frees the tail split off a shrunk block, merging it with the next block if that block is free. The tail never
+     * has a free previous block, since the shrunk block before it stays allocated.
+     *
+     * @param  tail Offset of the tail.
+     * @param  size Size of the tail.
+     */
+    private void releaseTail(long tail, long size) {
+        long nextHeader = word(tail + size);
+        int type = HeapEvents.SPLIT;
+        if ((nextHeader & A_BIT) == 0) {
+            removeFree(tail + size);
+            size += nextHeader & SIZE_MASK;
+            type = HeapEvents.COALESCE;
+            if (metrics != null) {
+                metrics.coalesceWithNextRecorded();
+            }
+        }
+        setWord(tail, size | P_BIT);
+        setWord(tail + size - headerSize, size);
+        setWord(tail + size, word(tail + size) & ~P_BIT);
+        insertFree(tail);
+        if (events != null) {
+            events.publish(type, tail, size);
+        }
+    }
+
+    /**
+     * Reads the header-sized word at the given offset. Used for headers, footers and free block links.
+     *
+     * @param  offset Offset of the word.
+     * @return Word value.
+     */
+    long word(long offset) {
+        return headerSize == 4 ? memory.getInt(offset) & 0xFFFFFFFFL : memory.getLong(offset);
+    }
+
+    /**
+     * Writes the header-sized word at the given offset. Used for headers, footers and free block links.
+     *
+     * @param  offset Offset of the word.
+     * @param  value Word value.
+     */
+    void setWord(long offset, long value) {
+        if (headerSize == 4) {
+            memory.putInt(offset, (int) value);
+        } else {
+            memory.putLong(offset, value);
+        }
+    }
+}
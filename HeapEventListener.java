@@ -0,0 +1,25 @@
+package allocator;
+
+/**
+ * HeapEventListener receives the block changes drained from HeapEvents.
+ *
+ * @author Brandon Kenter
+ */
+public interface HeapEventListener {
+    /**
+     * Called for every block change in the order the heap made them. A listener drained on another thread than the
+     * heap's must use only the arguments, since the heap may already have changed further.
+     *
+     * @param  type One of HeapEvents.ALLOCATE, FREE, SPLIT or COALESCE.
+     * @param  block Offset of the block header.
+     * @param  size Size of the block after the change.
+     */
+    void blockChanged(int type, long block, long size);
+
+    /**
+     * Called when changes were dropped or the whole heap changed at once. The listener must rebuild its view from the
+     * heap's current state, which is only consistent if the heap is not being changed meanwhile: either the ring is
+     * drained on the heap's thread, or it is a BLOCK ring, whose producer waits for the resync to finish.
+     */
+    void resync();
+}
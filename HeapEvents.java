@@ -0,0 +1,197 @@
+package allocator;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * HeapEvents is a preallocated single-producer, single-consumer ring of block changes published by a HeapEngine and
+ * drained by a view, so the heap can run at full speed on one thread while another thread, or a frame loop on the
+ * same thread, shows what changed. Every event is two longs in a fixed array: the block offset, and the block size
+ * with the event type in its top byte. The producer and consumer only share the two sequence counters, which are
+ * published with release writes, so neither side locks or allocates.
+ *
+ * When the producer outruns the consumer the ring applies its overflow policy. Whatever events are lost, the consumer
+ * is asked to resync from the heap's state on its next drain, so a view never draws from an incomplete history.
+ *
+ * A resync reads the live heap, so it is only consistent while the heap is not changing. With DROP_AND_RESYNC and
+ * SAMPLE the ring must be drained on the heap's thread between operations, as the visualizer does. A BLOCK ring may
+ * be drained on another thread: it never loses events, and when clear() or compact() asks for a resync the producer
+ * waits until the consumer has finished it. Such a consumer must take block changes only from the event arguments
+ * and must not otherwise read the heap, so HeapRenderer, which reads headers when it draws, cannot be one.
+ *
+ * @author Brandon Kenter
+ */
+public class HeapEvents {
+    public static final int ALLOCATE = 1; // A block was allocated, or an allocated block was resized in place
+    public static final int FREE = 2; // An allocated block was freed, before any coalescing
+    public static final int SPLIT = 3; // A free block was split off the end of an allocated block
+    public static final int COALESCE = 4; // Adjacent free blocks were merged into the given block
+
+    /**
+     * What the producer does when the ring is full.
+     */
+    public enum Overflow {
+        BLOCK, // Wait for the consumer to make room or finish a resync. The consumer must run on another thread
+        DROP_AND_RESYNC, // Drop events until the next drain, which discards the ring and resyncs instead
+        SAMPLE // Past half full, publish only one event in every sample interval, then resync after the next drain
+    }
+
+    private static final int TYPE_SHIFT = 56; // Position of the event type in the size slot
+    private static final long SIZE_MASK = (1L << TYPE_SHIFT) - 1;
+
+    private final long[] slots; // Two longs per event: block, then type and size
+    private final int mask; // Capacity minus one, for wrapping sequences into slots
+    private final Overflow overflow; // Policy when the ring is full
+    private final int sampleInterval; // Events per published event when sampling
+    private final AtomicLong tail = new AtomicLong(); // Sequence of the next event to publish, written by the producer
+    private final AtomicLong head = new AtomicLong(); // Sequence of the next event to drain, written by the consumer
+    private final AtomicBoolean resync = new AtomicBoolean(); // Whether events were lost since the last drain
+    private final AtomicLong resyncs = new AtomicLong(); // Resyncs the consumer has finished, written by the consumer
+    private long cachedHead; // Producer's last read of head, so it only reads head again when the ring looks full
+    private long skipped; // Events seen by the producer since the last one published while sampling
+    private volatile long dropped; // Events lost to the overflow policy, written only by the producer
+
+    /**
+     * Creates a ring that drops events and resyncs when it overflows.
+     *
+     * @param  capacity Number of events the ring holds, a power of two.
+     */
+    public HeapEvents(int capacity) {
+        this(capacity, Overflow.DROP_AND_RESYNC, 1);
+    }
+
+    /**
+     * Creates a ring with the given overflow policy.
+     *
+     * @param  capacity Number of events the ring holds, a power of two.
+     * @param  overflow Policy when the ring is full.
+     * @param  sampleInterval Events per published event once a SAMPLE ring is half full, ignored by other policies.
+     */
+    public HeapEvents(int capacity, Overflow overflow, int sampleInterval) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        if (sampleInterval < 1) {
+            throw new IllegalArgumentException("Sample interval must be positive: " + sampleInterval);
+        }
+        this.slots = new long[2 * capacity];
+        this.mask = capacity - 1;
+        this.overflow = overflow;
+        this.sampleInterval = sampleInterval;
+    }
+
+    /**
+     * Delivers every published event to the listener, or asks it to resync if events were lost. Must only be called
+     * by one consumer at a time.
+     *
+     * @param  listener Receives the events.
+     * @return Number of events delivered.
+     */
+    public int drain(HeapEventListener listener) {
+        boolean lost = resync.getAndSet(false);
+        long from = head.get();
+        long to = tail.get();
+
+        // A resync replaces the queued events unless they are a sample
+        if (lost && overflow != Overflow.SAMPLE) {
+            head.lazySet(to);
+            listener.resync();
+            resyncs.lazySet(resyncs.get() + 1);
+            return 0;
+        }
+        for (long sequence = from; sequence < to; sequence++) {
+            int slot = 2 * (int) (sequence & mask);
+            long typeAndSize = slots[slot + 1];
+            listener.blockChanged((int) (typeAndSize >>> TYPE_SHIFT), slots[slot], typeAndSize & SIZE_MASK);
+        }
+        head.lazySet(to);
+        if (lost) {
+            listener.resync();
+            resyncs.lazySet(resyncs.get() + 1);
+        }
+        return (int) (to - from);
+    }
+
+    /**
+     * Returns the number of events lost to the overflow policy.
+     *
+     * @return Events dropped or skipped by sampling.
+     */
+    public long dropped() {
+        return dropped;
+    }
+
+    /**
+     * Returns the number of events waiting to be drained.
+     *
+     * @return Published events not yet drained.
+     */
+    public int pending() {
+        return (int) (tail.get() - head.get());
+    }
+
+    /**
+     * Publishes a block change. Called only by the heap that owns the ring.
+     *
+     * @param  type One of ALLOCATE, FREE, SPLIT or COALESCE.
+     * @param  block Offset of the block header.
+     * @param  size Size of the block after the change.
+     */
+    void publish(int type, long block, long size) {
+        long sequence = tail.get();
+        int capacity = mask + 1;
+
+        // Thin the events out once the consumer is falling behind
+        if (overflow == Overflow.SAMPLE && sequence - cachedHead >= capacity / 2) {
+            cachedHead = head.get();
+            if (sequence - cachedHead >= capacity / 2 && ++skipped < sampleInterval) {
+                lose();
+                return;
+            }
+        }
+        skipped = 0;
+
+        // Apply the overflow policy when the ring is full
+        if (sequence - cachedHead == capacity) {
+            cachedHead = head.get();
+            while (sequence - cachedHead == capacity) {
+                if (overflow != Overflow.BLOCK) {
+                    lose();
+                    return;
+                }
+                Thread.onSpinWait();
+                LockSupport.parkNanos(1000);
+                cachedHead = head.get();
+            }
+        }
+
+        // Fill the slot, then release it to the consumer
+        int slot = 2 * (int) (sequence & mask);
+        slots[slot] = block;
+        slots[slot + 1] = (long) type << TYPE_SHIFT | size;
+        tail.lazySet(sequence + 1);
+    }
+
+    /**
+     * Tells the consumer that the whole heap changed at once. Called only by the heap that owns the ring, once the
+     * heap is consistent. A BLOCK ring waits until the consumer has resynced, so the consumer reads a heap that is
+     * not changing.
+     */
+    void publishResync() {
+        long finished = resyncs.get();
+        resync.set(true);
+        while (overflow == Overflow.BLOCK && resyncs.get() == finished) {
+            Thread.onSpinWait();
+            LockSupport.parkNanos(1000);
+        }
+    }
+
+    /**
+     * Counts an event lost to the overflow policy and asks the consumer to resync.
+     */
+    private void lose() {
+        dropped++;
+        resync.set(true);
+    }
+}
@@ -0,0 +1,131 @@
+package allocator;
+
+/**
+ * HeapGeometry describes the layout of a heap: the size of the allocatable space, the width of block headers and
+ * footers, and the number of reserved bytes before the first block (prologue) and after the last block (epilogue).
+ * The prologue and header widths together keep every payload 8-byte aligned, and the epilogue holds the end mark.
+ * The prologue is never empty, so offset 0 is never a block and can be used as a null pointer or link.
+ *
+ * @author Brandon Kenter
+ */
+public class HeapGeometry {
+    public static final long MAX_HEAP_SIZE_4 = (1L << 32) - 8; // Largest heap whose block sizes fit in a 4-byte header
+
+    private final long heapSize; // Size of the allocatable space in bytes
+    private final int headerSize; // Width of a header (and footer) in bytes, 4 or 8
+    private final int prologueSize; // Reserved bytes before the first block
+    private final int epilogueSize; // Reserved bytes after the last block, holding the end mark
+
+    /**
+     * Creates the default geometry with 4-byte headers and 4 reserved bytes at each end of the heap.
+     *
+     * @param  heapSize Size of the allocatable space in bytes, a positive multiple of 8.
+     */
+    public HeapGeometry(long heapSize) {
+        this(heapSize, 4, 4, 4);
+    }
+
+    /**
+     * Creates a geometry with the given header width and reserved prologue/epilogue.
+     *
+     * @param  heapSize Size of the allocatable space in bytes, a positive multiple of 8.
+     * @param  headerSize Width of a header in bytes, either 4 or 8.
+     * @param  prologueSize Reserved bytes before the first block, at least one byte. Prologue plus header width must
+     *                      be a multiple of 8.
+     * @param  epilogueSize Reserved bytes after the last block. Must be able to hold a header.
+     */
+    public HeapGeometry(long heapSize, int headerSize, int prologueSize, int epilogueSize) {
+        if (headerSize != 4 && headerSize != 8) {
+            throw new IllegalArgumentException("Header size must be 4 or 8 bytes: " + headerSize);
+        }
+        if (heapSize < 2L * headerSize || heapSize % 8 != 0) {
+            throw new IllegalArgumentException("Heap size must be a positive multiple of 8: " + heapSize);
+        }
+        if (headerSize == 4 && heapSize > MAX_HEAP_SIZE_4) {
+            throw new IllegalArgumentException("Heap size does not fit in a 4-byte header: " + heapSize);
+        }
+        if (prologueSize <= 0 || (prologueSize + headerSize) % 8 != 0) {
+            throw new IllegalArgumentException("Prologue must be non-empty and keep payloads 8-byte aligned: "
+                    + prologueSize);
+        }
+        if (epilogueSize < headerSize || epilogueSize % 4 != 0) {
+            throw new IllegalArgumentException("Epilogue cannot hold the end mark: " + epilogueSize);
+        }
+        this.heapSize = heapSize;
+        this.headerSize = headerSize;
+        this.prologueSize = prologueSize;
+        this.epilogueSize = epilogueSize;
+    }
+
+    /**
+     * Returns the size of the allocatable space.
+     *
+     * @return Heap size in bytes.
+     */
+    public long heapSize() {
+        return heapSize;
+    }
+
+    /**
+     * Returns the width of a header and footer.
+     *
+     * @return Header size in bytes.
+     */
+    public int headerSize() {
+        return headerSize;
+    }
+
+    /**
+     * Returns the number of reserved bytes before the first block.
+     *
+     * @return Prologue size in bytes.
+     */
+    public int prologueSize() {
+        return prologueSize;
+    }
+
+    /**
+     * Returns the number of reserved bytes after the last block.
+     *
+     * @return Epilogue size in bytes.
+     */
+    public int epilogueSize() {
+        return epilogueSize;
+    }
+
+    /**
+     * Returns the offset of the first block header.
+     *
+     * @return Offset of the start of the heap.
+     */
+    public long heapStart() {
+        return prologueSize;
+    }
+
+    /**
+     * Returns the offset of the end mark.
+     *
+     * @return Offset just past the last block.
+     */
+    public long heapEnd() {
+        return prologueSize + heapSize;
+    }
+
+    /**
+     * Returns the total number of bytes spanned by the heap including the reserved bytes.
+     *
+     * @return Total size in bytes.
+     */
+    public long totalSize() {
+        return prologueSize + heapSize + epilogueSize;
+    }
+
+    /**
+     * Returns the smallest block that can hold a header and a footer.
+     *
+     * @return Minimum block size in bytes.
+     */
+    public int minBlockSize() {
+        return (2 * headerSize + 7) & ~7;
+    }
+}
@@ -0,0 +1,48 @@
+package allocator;
+
+/**
+ * HeapMemory is the byte-addressed backing store of a heap. Offsets are plain longs so a heap can span several
+ * gigabytes, and reads and writes must be aligned to their width.
+ *
+ * @author Brandon Kenter
+ */
+public interface HeapMemory {
+    /**
+     * Returns the size of the memory.
+     *
+     * @return Size in bytes.
+     */
+    long size();
+
+    /**
+     * Reads the 4-byte word at the given offset.
+     *
+     * @param  offset Byte offset, a multiple of 4.
+     * @return Word value.
+     */
+    int getInt(long offset);
+
+    /**
+     * Writes the 4-byte word at the given offset.
+     *
+     * @param  offset Byte offset, a multiple of 4.
+     * @param  value Word value.
+     */
+    void putInt(long offset, int value);
+
+    /**
+     * Reads the 8-byte word at the given offset.
+     *
+     * @param  offset Byte offset, a multiple of 8.
+     * @return Word value.
+     */
+    long getLong(long offset);
+
+    /**
+     * Writes the 8-byte word at the given offset.
+     *
+     * @param  offset Byte offset, a multiple of 8.
+     * @param  value Word value.
+     */
+    void putLong(long offset, long value);
+}
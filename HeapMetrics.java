@@ -0,0 +1,215 @@
+package allocator;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * HeapMetrics instruments the hot paths of a HeapEngine: how many blocks each allocation's search visits, how long
+ * each allocation takes, the request sizes, failed allocations, splits, and coalesces with the next and previous
+ * blocks. Metrics are off unless attached with HeapEngine.setMetrics(), and an engine without metrics pays only a null
+ * check per operation. Every request of a batch allocation is recorded as an allocation, charged with the search and
+ * time since the previous request of the batch.
+ *
+ * Metrics are updated by the thread operating the heap without synchronization, so attach a separate instance to
+ * every engine that is used concurrently. They can be pulled as a consistent copy with snapshot() from the heap's
+ * thread, or watched from any thread through JMX after register(), where values may be slightly stale.
+ *
+ * @author Brandon Kenter
+ */
+public class HeapMetrics implements HeapMetricsMXBean {
+    private long mallocs; // Allocation requests
+    private long failedMallocs; // Allocation requests that returned NULL
+    private long frees; // Blocks freed
+    private long splits; // Free blocks split to allocate part of them
+    private long coalescesWithNext; // Merges of a free block with the block after it
+    private long coalescesWithPrevious; // Merges of a free block with the block before it
+    private final LogHistogram headersVisited = new LogHistogram(); // Blocks examined by each allocation's search
+    private final LogHistogram mallocLatency = new LogHistogram(); // Nanoseconds taken by each allocation
+    private final LogHistogram requestSize = new LogHistogram(); // Bytes requested by each allocation
+
+    /**
+     * Copy of the metrics at one point in time.
+     */
+    public static class Snapshot {
+        public final long mallocs; // Allocation requests
+        public final long failedMallocs; // Allocation requests that returned NULL
+        public final long frees; // Blocks freed
+        public final long splits; // Free blocks split to allocate part of them
+        public final long coalescesWithNext; // Merges of a free block with the block after it
+        public final long coalescesWithPrevious; // Merges of a free block with the block before it
+        public final LogHistogram headersVisited; // Blocks examined by each allocation's search
+        public final LogHistogram mallocLatency; // Nanoseconds taken by each allocation
+        public final LogHistogram requestSize; // Bytes requested by each allocation
+
+        private Snapshot(HeapMetrics metrics) {
+            this.mallocs = metrics.mallocs;
+            this.failedMallocs = metrics.failedMallocs;
+            this.frees = metrics.frees;
+            this.splits = metrics.splits;
+            this.coalescesWithNext = metrics.coalescesWithNext;
+            this.coalescesWithPrevious = metrics.coalescesWithPrevious;
+            this.headersVisited = new LogHistogram(metrics.headersVisited);
+            this.mallocLatency = new LogHistogram(metrics.mallocLatency);
+            this.requestSize = new LogHistogram(metrics.requestSize);
+        }
+    }
+
+    /**
+     * Returns a copy of the current metrics.
+     *
+     * @return Snapshot of every counter and histogram.
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server.
+     *
+     * @param  name Value of the name key, distinguishing heaps in the same process.
+     * @return Object name the metrics were registered under.
+     * @throws JMException If the name is invalid or already registered.
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("allocator:type=HeapMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public void reset() {
+        mallocs = 0;
+        failedMallocs = 0;
+        frees = 0;
+        splits = 0;
+        coalescesWithNext = 0;
+        coalescesWithPrevious = 0;
+        headersVisited.reset();
+        mallocLatency.reset();
+        requestSize.reset();
+    }
+
+    /**
+     * Records an allocation request.
+     *
+     * @param  size Number of bytes requested.
+     * @param  visits Number of blocks the search examined.
+     * @param  nanos Time taken by the allocation.
+     * @param  failed Whether the allocation returned NULL.
+     */
+    void mallocRecorded(long size, long visits, long nanos, boolean failed) {
+        mallocs++;
+        if (failed) {
+            failedMallocs++;
+        }
+        requestSize.record(size);
+        headersVisited.record(visits);
+        mallocLatency.record(nanos);
+    }
+
+    /**
+     * Records freed blocks.
+     *
+     * @param  blocks Number of blocks freed.
+     */
+    void freeRecorded(long blocks) {
+        frees += blocks;
+    }
+
+    /**
+     * Records a free block split to allocate part of it.
+     */
+    void splitRecorded() {
+        splits++;
+    }
+
+    /**
+     * Records a merge of a free block with the block after it.
+     */
+    void coalesceWithNextRecorded() {
+        coalescesWithNext++;
+    }
+
+    /**
+     * Records a merge of a free block with the block before it.
+     */
+    void coalesceWithPreviousRecorded() {
+        coalescesWithPrevious++;
+    }
+
+    @Override
+    public long getMallocs() {
+        return mallocs;
+    }
+
+    @Override
+    public long getFailedMallocs() {
+        return failedMallocs;
+    }
+
+    @Override
+    public long getFrees() {
+        return frees;
+    }
+
+    @Override
+    public long getSplits() {
+        return splits;
+    }
+
+    @Override
+    public long getCoalescesWithNext() {
+        return coalescesWithNext;
+    }
+
+    @Override
+    public long getCoalescesWithPrevious() {
+        return coalescesWithPrevious;
+    }
+
+    @Override
+    public double getMeanHeadersVisited() {
+        return headersVisited.mean();
+    }
+
+    @Override
+    public long getHeadersVisitedP99() {
+        return headersVisited.percentile(0.99);
+    }
+
+    @Override
+    public long getMaxHeadersVisited() {
+        return headersVisited.max();
+    }
+
+    @Override
+    public long getMallocLatencyP50() {
+        return mallocLatency.percentile(0.5);
+    }
+
+    @Override
+    public long getMallocLatencyP99() {
+        return mallocLatency.percentile(0.99);
+    }
+
+    @Override
+    public long getMaxMallocLatency() {
+        return mallocLatency.max();
+    }
+
+    @Override
+    public long getRequestSizeP50() {
+        return requestSize.percentile(0.5);
+    }
+
+    @Override
+    public long getRequestSizeP99() {
+        return requestSize.percentile(0.99);
+    }
+
+    @Override
+    public long getMaxRequestSize() {
+        return requestSize.max();
+    }
+}
@@ -0,0 +1,118 @@
+package allocator;
+
+/**
+ * HeapMetricsMXBean is the JMX view of a HeapMetrics.
+ *
+ * @author Brandon Kenter
+ */
+public interface HeapMetricsMXBean {
+    /**
+     * Returns the number of allocation requests.
+     *
+     * @return Allocation count.
+     */
+    long getMallocs();
+
+    /**
+     * Returns the number of allocation requests that could not be satisfied.
+     *
+     * @return Failed allocation count.
+     */
+    long getFailedMallocs();
+
+    /**
+     * Returns the number of blocks freed.
+     *
+     * @return Free count.
+     */
+    long getFrees();
+
+    /**
+     * Returns the number of free blocks split to allocate part of them.
+     *
+     * @return Split count.
+     */
+    long getSplits();
+
+    /**
+     * Returns the number of merges of a free block with the block after it.
+     *
+     * @return Coalesce count.
+     */
+    long getCoalescesWithNext();
+
+    /**
+     * Returns the number of merges of a free block with the block before it.
+     *
+     * @return Coalesce count.
+     */
+    long getCoalescesWithPrevious();
+
+    /**
+     * Returns the mean number of blocks examined by an allocation's search.
+     *
+     * @return Mean search length.
+     */
+    double getMeanHeadersVisited();
+
+    /**
+     * Returns the 99th percentile of the number of blocks examined by an allocation's search.
+     *
+     * @return Search length percentile.
+     */
+    long getHeadersVisitedP99();
+
+    /**
+     * Returns the largest number of blocks examined by an allocation's search.
+     *
+     * @return Longest search length.
+     */
+    long getMaxHeadersVisited();
+
+    /**
+     * Returns the median allocation latency.
+     *
+     * @return Latency in nanoseconds.
+     */
+    long getMallocLatencyP50();
+
+    /**
+     * Returns the 99th percentile of the allocation latency.
+     *
+     * @return Latency in nanoseconds.
+     */
+    long getMallocLatencyP99();
+
+    /**
+     * Returns the largest allocation latency.
+     *
+     * @return Latency in nanoseconds.
+     */
+    long getMaxMallocLatency();
+
+    /**
+     * Returns the median allocation request size.
+     *
+     * @return Size in bytes.
+     */
+    long getRequestSizeP50();
+
+    /**
+     * Returns the 99th percentile of the allocation request size.
+     *
+     * @return Size in bytes.
+     */
+    long getRequestSizeP99();
+
+    /**
+     * Returns the largest allocation request size.
+     *
+     * @return Size in bytes.
+     */
+    long getMaxRequestSize();
+
+    /**
+     * Clears every counter and histogram.
+     */
+    void reset();
+}
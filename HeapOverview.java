@@ -0,0 +1,181 @@
+package allocator;
+
+import java.util.Arrays;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+/**
+ * HeapOverview draws a zoomable overview of a heap of any size on a Canvas. Every column of pixels summarizes the
+ * byte range it covers, read from an OccupancySummary in logarithmic time: the upper row is shaded by the fraction of
+ * the range that is allocated and marks block boundaries once zoomed in far enough to tell them apart, and the lower
+ * row shows how densely packed with headers the range is. The mouse wheel zooms around the pointer and dragging pans.
+ *
+ * Only the visible part of the heap is ever computed. The canvas is split into tiles of columns, a change to the heap
+ * marks only the visible tiles it overlaps as dirty, and repaint() computes and draws only the dirty tiles. Must be used
+ * on the JavaFX application thread.
+ *
+ * @author Brandon Kenter
+ */
+public class HeapOverview {
+    private static final int TILE_WIDTH = 64; // Columns computed and drawn together
+    private static final double MIN_BYTES_PER_PIXEL = 1.0 / 16; // Deepest zoom, with a granule 128 pixels wide
+    private static final double ZOOM_STEP = 1.25; // Zoom factor of one mouse wheel step
+    private static final double BOUNDARY_BYTES_PER_PIXEL = 4; // Coarsest zoom that marks block boundaries
+    private static final int SHADES = 32; // Shades between a free and a fully allocated column
+    private static final double OCCUPANCY_HEIGHT = 2.0 / 3; // Share of the canvas height used by the upper row
+    private static final Color BACKGROUND = Color.web("#1e3c3c"); // Free bytes
+    private static final Color ALLOCATED = Color.web("#007521"); // Allocated bytes
+    private static final Color ACCENT = Color.web("#27cdae"); // Block boundaries and header density
+    private static final Color RESERVED = Color.RED; // Prologue and epilogue bytes
+
+    private final Canvas canvas; // Canvas drawn on
+    private final GraphicsContext gc; // Drawing context of the canvas
+    private final OccupancySummary summary; // Source of everything drawn
+    private final long totalSize; // Bytes spanned by the heap including the reserved bytes
+    private final long minBlockSize; // Smallest block, for the densest possible packing of headers
+    private final Color[] shades = new Color[SHADES + 1]; // Column colors by allocated fraction
+    private final boolean[] dirty; // Visible tiles that must be computed and drawn again
+    private double bytesPerPixel; // Width of a column in bytes
+    private double origin; // Offset of the byte at the left edge of the canvas
+    private double dragX; // Position of the mouse when the last drag event was handled
+
+    /**
+     * Creates an overview zoomed out to show the whole heap, and lets the mouse zoom and pan it.
+     *
+     * @param  canvas Canvas to draw on.
+     * @param  heap Heap to draw.
+     * @param  summary Summary of the heap, kept up to date by the caller.
+     */
+    public HeapOverview(Canvas canvas, HeapEngine heap, OccupancySummary summary) {
+        this.canvas = canvas;
+        this.gc = canvas.getGraphicsContext2D();
+        this.summary = summary;
+        this.totalSize = heap.geometry().totalSize();
+        this.minBlockSize = heap.minBlockSize();
+        this.dirty = new boolean[(int) Math.ceil(canvas.getWidth() / TILE_WIDTH)];
+        this.bytesPerPixel = maxBytesPerPixel();
+        for (int i = 0; i <= SHADES; i++) {
+            shades[i] = BACKGROUND.interpolate(ALLOCATED, (double) i / SHADES);
+        }
+
+        // Zoom around the pointer with the wheel and pan by dragging
+        canvas.setOnScroll(e -> {
+            zoom(e.getDeltaY() > 0 ? 1 / ZOOM_STEP : ZOOM_STEP, e.getX());
+            e.consume();
+        });
+        canvas.setOnMousePressed(e -> dragX = e.getX());
+        canvas.setOnMouseDragged(e -> {
+            scroll(dragX - e.getX());
+            dragX = e.getX();
+        });
+    }
+
+    /**
+     * Zooms in or out, keeping the byte under a column in place.
+     *
+     * @param  factor Factor to multiply the bytes per pixel by, below 1 to zoom in.
+     * @param  x Column that stays in place.
+     */
+    public void zoom(double factor, double x) {
+        double anchor = origin + x * bytesPerPixel;
+        bytesPerPixel = Math.max(MIN_BYTES_PER_PIXEL, Math.min(maxBytesPerPixel(), bytesPerPixel * factor));
+        origin = anchor - x * bytesPerPixel;
+        repaintAll();
+    }
+
+    /**
+     * Pans the overview.
+     *
+     * @param  pixels Number of columns to move right, or left if negative.
+     */
+    public void scroll(double pixels) {
+        origin += pixels * bytesPerPixel;
+        repaintAll();
+    }
+
+    /**
+     * Marks the visible tiles overlapping a changed range of the heap as dirty. Changes outside the visible part of
+     * the heap cost nothing, since those tiles are computed when they come into view.
+     *
+     * @param  from Offset of the first changed byte.
+     * @param  to Offset just past the last changed byte.
+     */
+    public void invalidate(long from, long to) {
+        double first = Math.max(0, (from - origin) / bytesPerPixel);
+        double end = Math.min(canvas.getWidth(), (to - origin) / bytesPerPixel);
+        for (int tile = (int) (first / TILE_WIDTH); tile < dirty.length && tile * TILE_WIDTH < end; tile++) {
+            dirty[tile] = true;
+        }
+    }
+
+    /**
+     * Computes and draws the dirty tiles.
+     */
+    public void repaint() {
+        for (int tile = 0; tile < dirty.length; tile++) {
+            if (dirty[tile]) {
+                dirty[tile] = false;
+                int end = (int) Math.min(canvas.getWidth(), (tile + 1) * TILE_WIDTH);
+                for (int x = tile * TILE_WIDTH; x < end; x++) {
+                    drawColumn(x);
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes and draws every visible tile.
+     */
+    public void repaintAll() {
+        origin = Math.max(0, Math.min(totalSize - canvas.getWidth() * bytesPerPixel, origin));
+        Arrays.fill(dirty, true);
+        repaint();
+    }
+
+    /**
+     * Draws the column of pixels summarizing a range of bytes.
+     *
+     * @param  x Column to draw.
+     */
+    private void drawColumn(int x) {
+        double from = origin + x * bytesPerPixel;
+        double to = from + bytesPerPixel;
+        double height = canvas.getHeight();
+        double occupancyHeight = Math.floor(height * OCCUPANCY_HEIGHT);
+        gc.clearRect(x, 0, 1, height);
+
+        // Reserved bytes, or the share of the heap bytes that is allocated
+        long heapBytes = summary.heapBytes((long) Math.floor(from), (long) Math.ceil(to));
+        if (heapBytes == 0) {
+            gc.setFill(from < totalSize ? RESERVED : BACKGROUND);
+            gc.fillRect(x, 0, 1, occupancyHeight);
+            return;
+        }
+        long allocatedBytes = summary.allocatedBytes((long) Math.floor(from), (long) Math.ceil(to));
+        gc.setFill(shades[(int) Math.round((double) allocatedBytes * SHADES / heapBytes)]);
+        gc.fillRect(x, 0, 1, occupancyHeight);
+
+        // Headers starting in the column, as a boundary when zoomed in and as a density bar below
+        long headers = summary.headers((long) Math.ceil(from), (long) Math.ceil(to));
+        if (headers == 0) {
+            return;
+        }
+        gc.setFill(ACCENT);
+        if (bytesPerPixel <= BOUNDARY_BYTES_PER_PIXEL) {
+            gc.fillRect(x, 0, 1, occupancyHeight);
+        }
+        double density = Math.min(1, (double) headers * minBlockSize / Math.max(bytesPerPixel, minBlockSize));
+        double barHeight = Math.max(1, (height - occupancyHeight) * density);
+        gc.fillRect(x, height - barHeight, 1, barHeight);
+    }
+
+    /**
+     * Returns the zoom that fits the whole heap on the canvas.
+     *
+     * @return Bytes per pixel when zoomed out completely.
+     */
+    private double maxBytesPerPixel() {
+        return Math.max(MIN_BYTES_PER_PIXEL, totalSize / canvas.getWidth());
+    }
+}
@@ -0,0 +1,350 @@
+package allocator;
+
+import java.util.Arrays;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * HeapRenderer draws a HeapEngine on a single Canvas. The canvas is split into five rows matching the labels on the
+ * left of the window: memory addresses, the traverser, the heap memory, the block headers and the pointer addresses.
+ * Every byte of the heap maps to a horizontal slice of the canvas, so heaps of any size fit, and text and cell borders
+ * are only drawn where there is room for them.
+ *
+ * Changes are not drawn immediately: callers invalidate the byte ranges an operation changed, and repaint() redraws
+ * only those ranges from the heap's current state, so the cost of a repaint is proportional to the blocks changed
+ * rather than to the size of the heap. Must be used on the JavaFX application thread.
+ *
+ * @author Brandon Kenter
+ */
+public class HeapRenderer {
+    private static final double ROW_HEIGHT = 54; // Height of each row of the canvas
+    private static final int ADDRESS_ROW = 0; // Memory addresses every 8 bytes
+    private static final int TRAVERSER_ROW = 1; // Circles under every possible header, lit by the traversal
+    private static final int MEMORY_ROW = 2; // One cell per byte, colored when allocated
+    private static final int HEADER_ROW = 3; // Header text of every block
+    private static final int POINTER_ROW = 4; // Payload address of every allocated block
+    private static final int CELL_SIZE = 4; // Bytes per cell in the header and pointer rows
+    private static final double MIN_BORDER_WIDTH = 3; // Narrowest cell that gets a border, in pixels
+    private static final double MIN_TEXT_WIDTH = 40; // Narrowest cell that gets text, in pixels
+    private static final Color ACCENT = Color.web("#27cdae"); // Borders, text and traverser circles
+    private static final Color ALLOCATED = Color.web("#007521"); // Allocated bytes
+    private static final Color RESERVED = Color.RED; // Prologue and epilogue bytes
+    private static final Font FONT = Font.font("Verdana", 12);
+
+    private final Canvas canvas; // Canvas drawn on
+    private final GraphicsContext gc; // Drawing context of the canvas
+    private final HeapEngine heap; // Heap being drawn
+    private final double pixelsPerByte; // Width of a byte on the canvas
+    private long[] dirty = new long[16]; // Invalidated ranges as pairs of start and end offsets
+    private int dirtyCount; // Number of values used in dirty
+    private long traverser = HeapEngine.NULL; // Header lit in the traverser row, or NULL
+
+    /**
+     * Creates a renderer that fits the whole heap, including its reserved bytes, across the width of the canvas.
+     *
+     * @param  canvas Canvas to draw on.
+     * @param  heap Heap to draw.
+     */
+    public HeapRenderer(Canvas canvas, HeapEngine heap) {
+        this.canvas = canvas;
+        this.gc = canvas.getGraphicsContext2D();
+        this.heap = heap;
+        this.pixelsPerByte = canvas.getWidth() / heap.geometry().totalSize();
+    }
+
+    /**
+     * Marks a range of the heap as changed so the next repaint() redraws it.
+     *
+     * @param  from Offset of the first block header that changed, or 0.
+     * @param  to Offset just past the last changed byte.
+     */
+    public void invalidate(long from, long to) {
+        if (dirtyCount == dirty.length) {
+            dirty = Arrays.copyOf(dirty, dirtyCount * 2);
+        }
+        dirty[dirtyCount++] = from;
+        dirty[dirtyCount++] = to;
+    }
+
+    /**
+     * Redraws every range invalidated since the last repaint, merging overlapping ranges first.
+     */
+    public void repaint() {
+        // Sort the ranges by start with an insertion sort, since there are only a few per frame
+        for (int i = 2; i < dirtyCount; i += 2) {
+            long from = dirty[i];
+            long to = dirty[i + 1];
+            int j = i;
+            for (; j > 0 && dirty[j - 2] > from; j -= 2) {
+                dirty[j] = dirty[j - 2];
+                dirty[j + 1] = dirty[j - 1];
+            }
+            dirty[j] = from;
+            dirty[j + 1] = to;
+        }
+
+        // Redraw each run of overlapping ranges once
+        int i = 0;
+        while (i < dirtyCount) {
+            long from = dirty[i];
+            long to = dirty[i + 1];
+            for (i += 2; i < dirtyCount && dirty[i] <= to; i += 2) {
+                to = Math.max(to, dirty[i + 1]);
+            }
+            drawRange(from, to);
+        }
+        dirtyCount = 0;
+    }
+
+    /**
+     * Redraws the whole canvas.
+     */
+    public void repaintAll() {
+        dirtyCount = 0;
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        drawAddresses();
+        drawTraverserCells(0, heap.geometry().totalSize());
+        drawRange(0, heap.geometry().totalSize());
+    }
+
+    /**
+     * Lights the traverser circle under a header, turning off the one lit before. The traverser row does not depend
+     * on the heap's blocks, so it is redrawn immediately.
+     *
+     * @param  block Offset of the header to light, or NULL to turn the traverser off.
+     */
+    public void setTraverser(long block) {
+        long previous = traverser;
+        traverser = block;
+        if (previous != HeapEngine.NULL) {
+            drawTraverserCells(previous, previous + CELL_SIZE);
+        }
+        if (block != HeapEngine.NULL) {
+            drawTraverserCells(block, block + CELL_SIZE);
+        }
+    }
+
+    /**
+     * Formats a pointer address as hex, zero-padded to the number of digits of the largest address in the heap.
+     *
+     * @param  ptr The pointer address.
+     * @return The formatted address, for example 0x_08.
+     */
+    public String formatAddress(long ptr) {
+        int digits = Math.max(2, (Long.toHexString(heap.geometry().totalSize() - 1)).length());
+        return String.format("0x_%0" + digits + "x", ptr);
+    }
+
+    /**
+     * Parses an address formatted by formatAddress().
+     *
+     * @param  address The formatted address, or null.
+     * @return The pointer address, or NULL if the text is not an address.
+     */
+    public long parseAddress(String address) {
+        if (address == null || !address.startsWith("0x_")) {
+            return HeapEngine.NULL;
+        }
+        try {
+            return Long.parseLong(address.substring(3), 16);
+        } catch (NumberFormatException e) {
+            return HeapEngine.NULL;
+        }
+    }
+
+    /**
+     * Redraws the memory, header and pointer rows of a range of the heap from the blocks that overlap it.
+     *
+     * @param  from Offset of a block header, or 0 to include the prologue.
+     * @param  to Offset just past the last byte to redraw.
+     */
+    private void drawRange(long from, long to) {
+        long heapStart = heap.geometry().heapStart();
+        long heapEnd = heap.geometry().heapEnd();
+        to = Math.min(to, heap.geometry().totalSize());
+        double x = x(from);
+        double y = ROW_HEIGHT * MEMORY_ROW;
+        double height = ROW_HEIGHT * (POINTER_ROW + 1 - MEMORY_ROW);
+
+        // Draw only inside the range, so blocks overlapping its ends are not drawn over their neighbours
+        gc.save();
+        gc.beginPath();
+        gc.rect(x, y, x(to) - x, height);
+        gc.clip();
+        gc.clearRect(x, y, x(to) - x, height);
+        gc.setFont(FONT);
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.CENTER);
+
+        // Reserved bytes before and after the blocks
+        if (from < heapStart) {
+            drawBytes(0, heapStart, RESERVED);
+            drawCells(0, heapStart);
+        }
+        if (to > heapEnd) {
+            drawBytes(heapEnd, heap.geometry().totalSize(), RESERVED);
+            drawCells(heapEnd, heap.geometry().totalSize());
+        }
+
+        // Blocks overlapping the range
+        for (long block = Math.max(from, heapStart); block < to && !heap.isEnd(block); block = heap.nextBlock(block)) {
+            drawBlock(block, to);
+        }
+        gc.restore();
+    }
+
+    /**
+     * Draws a block in the memory, header and pointer rows.
+     *
+     * @param  block Offset of the block header.
+     * @param  limit Offset past which nothing needs to be drawn.
+     */
+    private void drawBlock(long block, long limit) {
+        int headerSize = heap.geometry().headerSize();
+        long size = heap.blockSize(block);
+        long end = Math.min(block + size, limit);
+        drawBytes(block, end, heap.isAllocated(block) ? ALLOCATED : null);
+        drawCells(block, end);
+
+        // Header text, or a boundary mark when the cell is too narrow for text
+        gc.setFill(ACCENT);
+        if (CELL_SIZE * pixelsPerByte >= MIN_TEXT_WIDTH) {
+            String header = size + "/" + (heap.isPrevAllocated(block) ? "1" : "0") + "/"
+                    + (heap.isAllocated(block) ? "1" : "0");
+            drawText(header, block, HEADER_ROW);
+            if (heap.isAllocated(block)) {
+                drawText(formatAddress(block + headerSize), block + headerSize, POINTER_ROW);
+            }
+        } else {
+            gc.fillRect(x(block), ROW_HEIGHT * HEADER_ROW, 1, ROW_HEIGHT);
+        }
+    }
+
+    /**
+     * Fills the memory row of a range of bytes, with a border around every byte when there is room.
+     *
+     * @param  from Offset of the first byte.
+     * @param  to Offset just past the last byte.
+     * @param  color Fill color, or null to leave the bytes empty.
+     */
+    private void drawBytes(long from, long to, Color color) {
+        double y = ROW_HEIGHT * MEMORY_ROW;
+        if (color != null) {
+            gc.setFill(color);
+            gc.fillRect(x(from), y, x(to) - x(from), ROW_HEIGHT);
+        }
+        gc.setStroke(ACCENT);
+        gc.setLineWidth(1);
+        if (pixelsPerByte >= MIN_BORDER_WIDTH) {
+            for (long i = from; i < to; i++) {
+                gc.strokeRect(x(i), y, pixelsPerByte, ROW_HEIGHT);
+            }
+        } else {
+            gc.strokeLine(x(from), y, x(to), y);
+            gc.strokeLine(x(from), y + ROW_HEIGHT, x(to), y + ROW_HEIGHT);
+        }
+    }
+
+    /**
+     * Draws the borders of the header and pointer cells of a range of bytes when there is room.
+     *
+     * @param  from Offset of the first byte.
+     * @param  to Offset just past the last byte.
+     */
+    private void drawCells(long from, long to) {
+        double width = CELL_SIZE * pixelsPerByte;
+        if (width < MIN_BORDER_WIDTH) {
+            return;
+        }
+        gc.setStroke(ACCENT);
+        gc.setLineWidth(1);
+        for (long cell = from - from % CELL_SIZE; cell < to; cell += CELL_SIZE) {
+            gc.strokeRect(x(cell), ROW_HEIGHT * HEADER_ROW, width, ROW_HEIGHT);
+            gc.strokeRect(x(cell), ROW_HEIGHT * POINTER_ROW, width, ROW_HEIGHT);
+        }
+    }
+
+    /**
+     * Draws the traverser row of a range of bytes: a dim circle under every offset where a header can start and a lit
+     * circle under the traverser.
+     *
+     * @param  from Offset of the first byte.
+     * @param  to Offset just past the last byte.
+     */
+    private void drawTraverserCells(long from, long to) {
+        double y = ROW_HEIGHT * TRAVERSER_ROW;
+        gc.clearRect(x(from), y, x(to) - x(from), ROW_HEIGHT);
+        gc.setFill(ACCENT);
+
+        // Headers always start 8 bytes apart, a header width before an 8-byte aligned payload
+        if (8 * pixelsPerByte >= MIN_BORDER_WIDTH * 4) {
+            long first = heap.geometry().heapStart();
+            long start = from <= first ? first : first + (from - first + 7) / 8 * 8;
+            gc.setGlobalAlpha(0.44);
+            for (long header = start; header < Math.min(to, heap.geometry().heapEnd()); header += 8) {
+                drawCircle(header);
+            }
+            gc.setGlobalAlpha(1);
+        }
+        if (traverser != HeapEngine.NULL && traverser >= from && traverser < to) {
+            drawCircle(traverser);
+        }
+    }
+
+    /**
+     * Draws a traverser circle centered under a header cell.
+     *
+     * @param  header Offset of the header.
+     */
+    private void drawCircle(long header) {
+        double radius = Math.max(2, Math.min(7, CELL_SIZE * pixelsPerByte / 2));
+        double cx = x(header) + Math.max(CELL_SIZE * pixelsPerByte, 2 * radius) / 2;
+        double cy = ROW_HEIGHT * TRAVERSER_ROW + ROW_HEIGHT / 2;
+        gc.fillOval(cx - radius, cy - radius * 8 / 7, 2 * radius, 2 * radius * 8 / 7);
+    }
+
+    /**
+     * Draws the memory address row: a label every 8 bytes, or further apart when the bytes are too narrow.
+     */
+    private void drawAddresses() {
+        long step = 8;
+        while (step * pixelsPerByte < MIN_TEXT_WIDTH * 1.5) {
+            step *= 2;
+        }
+        gc.setFont(FONT);
+        gc.setTextAlign(TextAlignment.LEFT);
+        gc.setTextBaseline(VPos.CENTER);
+        gc.setFill(ACCENT);
+        gc.setStroke(ACCENT);
+        for (long offset = 0; offset < heap.geometry().totalSize(); offset += step) {
+            gc.strokeLine(x(offset), ROW_HEIGHT * ADDRESS_ROW + 12, x(offset), ROW_HEIGHT * (ADDRESS_ROW + 1) - 12);
+            gc.fillText(formatAddress(offset), x(offset) + 5, ROW_HEIGHT * ADDRESS_ROW + ROW_HEIGHT / 2);
+        }
+    }
+
+    /**
+     * Draws text centered in the cell at an offset.
+     *
+     * @param  text Text to draw.
+     * @param  offset Offset of the cell.
+     * @param  row Row of the cell.
+     */
+    private void drawText(String text, long offset, int row) {
+        double width = CELL_SIZE * pixelsPerByte;
+        gc.fillText(text, x(offset) + width / 2, ROW_HEIGHT * row + ROW_HEIGHT / 2, width - 2);
+    }
+
+    /**
+     * Returns the horizontal position of a byte on the canvas.
+     *
+     * @param  offset Offset of the byte.
+     * @return Position in pixels.
+     */
+    private double x(long offset) {
+        return offset * pixelsPerByte;
+    }
+}
@@ -0,0 +1,191 @@
+package allocator;
+
+import java.util.Arrays;
+
+/**
+ * HeapStats keeps running totals for a HeapEngine so they can be read in constant time instead of walking the heap.
+ * The engine reports every block that becomes free or stops being free (the same points at which it updates its free
+ * block index) and every block it allocates or frees, including blocks created by splits and merged by coalescing.
+ *
+ * The largest free block is found with a max-heap of the distinct free block sizes and a count of free blocks of each
+ * size. A size whose count drops to zero is left in the max-heap and discarded when it reaches the top, which only
+ * happens while a block is being removed, so updates are amortized O(log sizes) and the largest free block is kept in
+ * a field. Reading any statistic is a plain field read that never changes the state.
+ *
+ * @author Brandon Kenter
+ */
+public class HeapStats {
+    private static final long IN_HEAP = 1; // Low bit of a size count marking that the size is in the max-heap
+
+    private final long heapSize; // Size of the allocatable space
+    private long freeSize; // Total size of the free blocks
+    private long freeBlocks; // Number of free blocks
+    private long allocatedBlocks; // Number of allocated blocks
+    private final LongLongHashMap sizeCounts = new LongLongHashMap(); // Size to (free blocks << 1 | IN_HEAP)
+    private long[] sizes = new long[16]; // Max-heap of free block sizes, possibly with sizes no block has anymore
+    private int sizeCount; // Number of sizes in the max-heap
+    private long largest; // Size of the largest free block, or 0 if there is none
+
+    /**
+     * Creates statistics for an empty heap with no blocks.
+     *
+     * @param  heapSize Size of the allocatable space in bytes.
+     */
+    HeapStats(long heapSize) {
+        this.heapSize = heapSize;
+    }
+
+    /**
+     * Returns the total size of the allocated blocks.
+     *
+     * @return Allocated size in bytes including headers and padding.
+     */
+    public long allocatedSize() {
+        return heapSize - freeSize;
+    }
+
+    /**
+     * Returns the total size of the free blocks.
+     *
+     * @return Free size in bytes.
+     */
+    public long freeSize() {
+        return freeSize;
+    }
+
+    /**
+     * Returns the number of allocated blocks.
+     *
+     * @return Allocated block count.
+     */
+    public long allocatedBlocks() {
+        return allocatedBlocks;
+    }
+
+    /**
+     * Returns the number of free blocks.
+     *
+     * @return Free block count.
+     */
+    public long freeBlocks() {
+        return freeBlocks;
+    }
+
+    /**
+     * Returns the size of the largest free block.
+     *
+     * @return Largest free block size in bytes, or 0 if the heap is full.
+     */
+    public long largestFreeBlock() {
+        return largest;
+    }
+
+    /**
+     * Returns the external fragmentation of the heap: the fraction of free memory outside the largest free block,
+     * which cannot be used by a single allocation of the total free size.
+     *
+     * @return 1 - largest free block / free size, or 0 if the heap is full.
+     */
+    public double fragmentation() {
+        return freeSize == 0 ? 0 : 1 - (double) largestFreeBlock() / freeSize;
+    }
+
+    /**
+     * Forgets every block.
+     */
+    void reset() {
+        freeSize = 0;
+        freeBlocks = 0;
+        allocatedBlocks = 0;
+        sizeCounts.clear();
+        sizeCount = 0;
+        largest = 0;
+    }
+
+    /**
+     * Records a block that has become free.
+     *
+     * @param  size Size of the block.
+     */
+    void freeBlockAdded(long size) {
+        freeSize += size;
+        freeBlocks++;
+        long count = sizeCounts.get(size);
+        if ((count & IN_HEAP) == 0) {
+            push(size);
+        }
+        sizeCounts.put(size, count + 2 | IN_HEAP);
+        largest = Math.max(largest, size);
+    }
+
+    /**
+     * Records a free block that has been allocated or absorbed by coalescing.
+     *
+     * @param  size Size of the block.
+     */
+    void freeBlockRemoved(long size) {
+        freeSize -= size;
+        freeBlocks--;
+        sizeCounts.put(size, sizeCounts.get(size) - 2);
+
+        // Discard sizes no free block has anymore from the top of the max-heap
+        if (size == largest) {
+            while (sizeCount > 0 && sizeCounts.get(sizes[0]) == IN_HEAP) {
+                sizeCounts.remove(sizes[0]);
+                sizes[0] = sizes[--sizeCount];
+                siftDown(0);
+            }
+            largest = sizeCount == 0 ? 0 : sizes[0];
+        }
+    }
+
+    /**
+     * Records a change in the number of allocated blocks.
+     *
+     * @param  delta Number of blocks allocated, negative for blocks freed.
+     */
+    void allocatedBlocksChanged(long delta) {
+        allocatedBlocks += delta;
+    }
+
+    /**
+     * Adds a size to the max-heap.
+     *
+     * @param  size Free block size.
+     */
+    private void push(long size) {
+        if (sizeCount == sizes.length) {
+            sizes = Arrays.copyOf(sizes, sizeCount * 2);
+        }
+        int i = sizeCount++;
+        while (i > 0 && sizes[(i - 1) >> 1] < size) {
+            sizes[i] = sizes[(i - 1) >> 1];
+            i = (i - 1) >> 1;
+        }
+        sizes[i] = size;
+    }
+
+    /**
+     * Moves the size at an index down the max-heap until both children are smaller.
+     *
+     * @param  i Index of the size.
+     */
+    private void siftDown(int i) {
+        long size = sizes[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= sizeCount) {
+                break;
+            }
+            if (child + 1 < sizeCount && sizes[child + 1] > sizes[child]) {
+                child++;
+            }
+            if (sizes[child] <= size) {
+                break;
+            }
+            sizes[i] = sizes[child];
+            i = child;
+        }
+        sizes[i] = size;
+    }
+}
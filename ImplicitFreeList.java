@@ -0,0 +1,55 @@
+package allocator;
+
+/**
+ * ImplicitFreeList finds free blocks by walking every header from the start of the heap and choosing the first free
+ * block that is large enough. It keeps no bookkeeping of its own, so allocated blocks are visited as well.
+ *
+ * @author Brandon Kenter
+ */
+public class ImplicitFreeList implements FreeBlockIndex {
+    private HeapEngine heap; // Heap whose blocks are walked
+    private long visits; // Blocks examined by find()
+
+    @Override
+    public void attach(HeapEngine heap) {
+        this.heap = heap;
+    }
+
+    @Override
+    public int linkWords() {
+        return 0;
+    }
+
+    @Override
+    public void reset() {
+    }
+
+    @Override
+    public void insert(long block) {
+    }
+
+    @Override
+    public void remove(long block) {
+    }
+
+    @Override
+    public long find(long size) {
+        // Iterate through blocks using first-fit placement policy
+        long block = heap.firstBlock();
+        long header = heap.word(block);
+        while ((header & HeapEngine.SIZE_MASK) != 0) {
+            visits++;
+            if ((header & HeapEngine.A_BIT) == 0 && (header & HeapEngine.SIZE_MASK) >= size) {
+                return block;
+            }
+            block += header & HeapEngine.SIZE_MASK;
+            header = heap.word(block);
+        }
+        return HeapEngine.NULL;
+    }
+
+    @Override
+    public long visits() {
+        return visits;
+    }
+}
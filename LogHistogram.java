@@ -0,0 +1,138 @@
+package allocator;
+
+import java.util.Arrays;
+
+/**
+ * LogHistogram counts non-negative values in logarithmic buckets, in the style of an HDR histogram. Every power of two
+ * is split into 8 linear sub-buckets, so any recorded value is reported within 12.5% of its true value while the whole
+ * range of longs fits in 512 counters. Recording is a few shifts and an array increment and never allocates.
+ *
+ * @author Brandon Kenter
+ */
+public class LogHistogram {
+    private static final int SUB_BITS = 3; // Sub-buckets per power of two as a power of two
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    private final long[] counts = new long[64 << SUB_BITS]; // Number of values in each bucket
+    private long count; // Number of values recorded
+    private long sum; // Sum of the values recorded
+    private long max; // Largest value recorded
+
+    /**
+     * Creates an empty histogram.
+     */
+    public LogHistogram() {
+    }
+
+    /**
+     * Creates a copy of a histogram.
+     *
+     * @param  other Histogram to copy.
+     */
+    public LogHistogram(LogHistogram other) {
+        System.arraycopy(other.counts, 0, counts, 0, counts.length);
+        this.count = other.count;
+        this.sum = other.sum;
+        this.max = other.max;
+    }
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     *
+     * @param  value Value to record.
+     */
+    public void record(long value) {
+        value = Math.max(value, 0);
+        counts[bucketOf(value)]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Returns the number of values recorded.
+     *
+     * @return Value count.
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns the largest value recorded.
+     *
+     * @return Maximum, or 0 if nothing was recorded.
+     */
+    public long max() {
+        return max;
+    }
+
+    /**
+     * Returns the mean of the values recorded.
+     *
+     * @return Mean, or 0 if nothing was recorded.
+     */
+    public double mean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Returns the value below which the given fraction of the recorded values fall.
+     *
+     * @param  fraction Fraction between 0 and 1, for example 0.99 for the 99th percentile.
+     * @return Upper bound of the bucket holding the percentile, capped at the maximum, or 0 if nothing was recorded.
+     */
+    public long percentile(double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Math.min(max, upperBound(bucket));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Forgets every value.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    /**
+     * Returns the bucket of a value.
+     *
+     * @param  value Non-negative value.
+     * @return Bucket index.
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int log = 63 - Long.numberOfLeadingZeros(value);
+        return ((log - SUB_BITS + 1) << SUB_BITS) + (int) ((value >>> (log - SUB_BITS)) & (SUB_COUNT - 1));
+    }
+
+    /**
+     * Returns the largest value that falls in a bucket.
+     *
+     * @param  bucket Bucket index.
+     * @return Upper bound of the bucket.
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int log = (bucket >>> SUB_BITS) + SUB_BITS - 1;
+        long lower = (1L << log) + ((long) (bucket & (SUB_COUNT - 1)) << (log - SUB_BITS));
+        return lower + (1L << (log - SUB_BITS)) - 1;
+    }
+}
@@ -0,0 +1,200 @@
+package allocator;
+
+import java.util.Arrays;
+
+/**
+ * LongLongHashMap is an open-addressing hash map from non-zero long keys to long values stored in two primitive
+ * arrays, so lookups, insertions and removals never allocate. It uses linear probing and backward-shift deletion, so
+ * there are no tombstones, and it doubles its capacity when it is half full. Zero is reserved as the empty key and is
+ * returned by lookups of absent keys.
+ *
+ * @author Brandon Kenter
+ */
+public class LongLongHashMap {
+    private long[] keys; // Keys, 0 marks an empty slot
+    private long[] values; // Value of each occupied slot
+    private int mask; // Capacity minus one, capacity is a power of two
+    private int size; // Number of entries
+
+    /**
+     * Creates an empty map.
+     */
+    public LongLongHashMap() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty map that can hold the given number of entries without growing.
+     *
+     * @param  expectedSize Number of entries expected.
+     */
+    public LongLongHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(8, expectedSize) * 2 - 1) << 1;
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Returns the value of a key.
+     *
+     * @param  key Non-zero key.
+     * @return Value of the key, or 0 if it is absent.
+     */
+    public long get(long key) {
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key) {
+                return values[i];
+            }
+            if (k == 0) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Returns whether the map contains a key.
+     *
+     * @param  key Non-zero key.
+     * @return True if the key is present.
+     */
+    public boolean containsKey(long key) {
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key) {
+                return true;
+            }
+            if (k == 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Sets the value of a key.
+     *
+     * @param  key Non-zero key.
+     * @param  value Value of the key.
+     * @return Previous value of the key, or 0 if it was absent.
+     */
+    public long put(long key, long value) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key must not be 0");
+        }
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key) {
+                long previous = values[i];
+                values[i] = value;
+                return previous;
+            }
+            if (k == 0) {
+                keys[i] = key;
+                values[i] = value;
+                if (++size > (mask + 1) >> 1) {
+                    resize(keys.length << 1);
+                }
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param  key Non-zero key.
+     * @return Value of the removed key, or 0 if it was absent.
+     */
+    public long remove(long key) {
+        int i = slot(key);
+        while (keys[i] != key) {
+            if (keys[i] == 0) {
+                return 0;
+            }
+            i = (i + 1) & mask;
+        }
+        long value = values[i];
+        size--;
+
+        // Shift following entries of the probe sequence back into the gap
+        int gap = i;
+        for (int j = (gap + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = 0;
+        return value;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return Entry count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        size = 0;
+    }
+
+    /**
+     * Copies the keys into an array, in no particular order.
+     *
+     * @param  dest Array of at least size() elements.
+     * @return Number of keys copied.
+     */
+    public int keys(long[] dest) {
+        int n = 0;
+        for (long key : keys) {
+            if (key != 0) {
+                dest[n++] = key;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns the home slot of a key.
+     *
+     * @param  key Key to hash.
+     * @return Slot index.
+     */
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * Rehashes every entry into arrays of a new capacity.
+     *
+     * @param  capacity New capacity, a power of two.
+     */
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int j = slot(oldKeys[i]);
+                while (keys[j] != 0) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
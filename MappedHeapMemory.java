@@ -0,0 +1,78 @@
+package allocator;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * MappedHeapMemory keeps a heap in a region of a file mapped into memory, so the heap outlives the process and can be
+ * reopened without rebuilding it. The region is mapped in chunks of at most 1 GiB because a single mapping cannot
+ * exceed 2 GiB. Words are stored little-endian so files move between machines.
+ *
+ * @author Brandon Kenter
+ */
+public class MappedHeapMemory implements HeapMemory {
+    private static final int CHUNK_SHIFT = 30; // Bytes per mapping as a power of two (1 GiB)
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private final MappedByteBuffer[] chunks; // Mappings of consecutive parts of the region
+    private final long size; // Size of the memory in bytes
+
+    /**
+     * Maps a region of a file as heap memory. The file grows if it is shorter than the region.
+     *
+     * @param  channel File opened for reading and writing.
+     * @param  position File offset of the region.
+     * @param  size Size of the region in bytes, a multiple of 4.
+     * @throws IOException If the region cannot be mapped.
+     */
+    public MappedHeapMemory(FileChannel channel, long position, long size) throws IOException {
+        if (size <= 0 || size % 4 != 0) {
+            throw new IllegalArgumentException("Memory size must be a positive multiple of 4: " + size);
+        }
+        int chunkCount = (int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT);
+        this.chunks = new MappedByteBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            long start = (long) i << CHUNK_SHIFT;
+            chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, position + start,
+                    Math.min(size - start, 1L << CHUNK_SHIFT));
+            chunks[i].order(ByteOrder.LITTLE_ENDIAN);
+        }
+        this.size = size;
+    }
+
+    /**
+     * Writes every change to the memory through to the file.
+     */
+    public void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public int getInt(long offset) {
+        return chunks[(int) (offset >>> CHUNK_SHIFT)].getInt((int) (offset & CHUNK_MASK));
+    }
+
+    @Override
+    public void putInt(long offset, int value) {
+        chunks[(int) (offset >>> CHUNK_SHIFT)].putInt((int) (offset & CHUNK_MASK), value);
+    }
+
+    @Override
+    public long getLong(long offset) {
+        return chunks[(int) (offset >>> CHUNK_SHIFT)].getLong((int) (offset & CHUNK_MASK));
+    }
+
+    @Override
+    public void putLong(long offset, long value) {
+        chunks[(int) (offset >>> CHUNK_SHIFT)].putLong((int) (offset & CHUNK_MASK), value);
+    }
+}
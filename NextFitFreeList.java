@@ -0,0 +1,96 @@
+package allocator;
+
+/**
+ * NextFitFreeList walks the implicit list of headers like ImplicitFreeList, but each search resumes from a roving
+ * pointer at the block chosen by the previous search instead of the start of the heap, wrapping around once. When
+ * coalescing absorbs the block the rover points at, the rover moves to the start of the coalesced block, and when a
+ * growing block absorbs it, the rover moves past it.
+ *
+ * @author Brandon Kenter
+ */
+public class NextFitFreeList implements FreeBlockIndex {
+    private HeapEngine heap; // Heap whose blocks are walked
+    private long rover; // Block where the next search starts
+    private long visits; // Blocks examined by find()
+    private boolean placing; // Whether the rover is at the block just found, which is about to be allocated
+    private boolean absorbed; // Whether the rover was just moved past a free block that a coalesced block may cover
+
+    @Override
+    public void attach(HeapEngine heap) {
+        this.heap = heap;
+    }
+
+    @Override
+    public int linkWords() {
+        return 0;
+    }
+
+    @Override
+    public void reset() {
+        rover = heap.firstBlock();
+        placing = false;
+        absorbed = false;
+    }
+
+    @Override
+    public void insert(long block) {
+        // Move the rover to the start of a coalesced block that swallowed it, including the block just removed
+        long end = block + heap.blockSize(block);
+        if ((rover > block && rover < end) || (absorbed && rover == end)) {
+            rover = block;
+        }
+        absorbed = false;
+    }
+
+    @Override
+    public void remove(long block) {
+        // A free block absorbed by a growing neighbour no longer starts a block, so move the rover past it
+        if (rover == block && !placing) {
+            rover = block + heap.blockSize(block);
+            absorbed = true;
+        }
+        placing = false;
+    }
+
+    @Override
+    public long find(long size) {
+        // Search from the rover to the end of the heap, then from the start of the heap back to the rover
+        absorbed = false;
+        long block = search(rover, Long.MAX_VALUE, size);
+        if (block == HeapEngine.NULL) {
+            block = search(heap.firstBlock(), rover, size);
+        }
+        if (block != HeapEngine.NULL) {
+            rover = block;
+            placing = true;
+        }
+        return block;
+    }
+
+    @Override
+    public long visits() {
+        return visits;
+    }
+
+    /**
+     * Walks headers from a block until the end of the heap or a limit, returning the first free block that fits.
+     *
+     * @param  from Offset of the first header to visit.
+     * @param  limit Offset at which to stop.
+     * @param  size Block size needed including the header.
+     * @return Offset of a fitting free block header, or NULL if there is none.
+     */
+    private long search(long from, long limit, long size) {
+        long block = from;
+        long header = heap.word(block);
+        while ((header & HeapEngine.SIZE_MASK) != 0 && block < limit) {
+            visits++;
+            if ((header & HeapEngine.A_BIT) == 0 && (header & HeapEngine.SIZE_MASK) >= size) {
+                return block;
+            }
+            block += header & HeapEngine.SIZE_MASK;
+            header = heap.word(block);
+        }
+        return HeapEngine.NULL;
+    }
+}
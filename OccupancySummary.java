@@ -0,0 +1,364 @@
+package allocator;
+
+import java.util.Arrays;
+
+/**
+ * OccupancySummary keeps a multi-resolution summary of where the blocks of a heap start and which of them are
+ * allocated, so a view can describe any byte range in logarithmic time however large the heap is. Blocks always start
+ * and end on 8-byte granules, so the block starts are kept as a bitmap with one bit per granule, and the size and
+ * state of each block in a primitive hash map keyed by its start. Above the bitmap is a pyramid of counts, where each
+ * level halves the number of cells and each cell holds the number of blocks starting in it and the total size of the
+ * allocated ones.
+ *
+ * The summary follows the heap through the heap's events. A changed block only touches its own start, the starts of
+ * the blocks it absorbed, and the cells of the pyramid above them, so an update costs logarithmic time per block
+ * however large the block is.
+ *
+ * @author Brandon Kenter
+ */
+public class OccupancySummary implements HeapEventListener {
+    private static final int GRANULE_SHIFT = 3; // Blocks start and end on 8-byte granules
+
+    private final HeapEngine heap; // Heap being summarized
+    private final long heapStart; // Offset of the first granule
+    private final long granules; // Number of granules in the heap
+    private final long[] headers; // Bit per granule, set when a block starts at the granule
+    private final long[] allocatedStarts; // Granules of the allocated blocks starting in each word of headers
+    private final long[][] headerCounts; // Block starts in each cell of levels 1 and up, covering 2^level words
+    private final long[][] allocatedCounts; // Granules of the allocated blocks starting in each cell of levels 1 and up
+    private final LongLongHashMap blocks = new LongLongHashMap(); // Start granule + 1 to size in granules << 1 | allocated
+
+    /**
+     * Creates a summary of the heap's current blocks.
+     *
+     * @param  heap Heap to summarize.
+     */
+    public OccupancySummary(HeapEngine heap) {
+        this.heap = heap;
+        this.heapStart = heap.geometry().heapStart();
+        this.granules = heap.heapSize() >>> GRANULE_SHIFT;
+        int words = (int) ((granules + 63) >>> 6);
+        this.headers = new long[words];
+        this.allocatedStarts = new long[words];
+
+        // One level per halving until a single cell covers the heap
+        int levels = 1;
+        while ((words - 1) >>> (levels - 1) > 0) {
+            levels++;
+        }
+        this.headerCounts = new long[levels][];
+        this.allocatedCounts = new long[levels][];
+        for (int level = 1; level < levels; level++) {
+            int cells = (int) (((long) words + (1L << level) - 1) >>> level);
+            headerCounts[level] = new long[cells];
+            allocatedCounts[level] = new long[cells];
+        }
+        resync();
+    }
+
+    /**
+     * Returns the number of allocated bytes in a range of the heap, counted in whole granules.
+     *
+     * @param  from Offset of the first byte.
+     * @param  to Offset just past the last byte.
+     * @return Allocated bytes in the granules overlapping the range.
+     */
+    public long allocatedBytes(long from, long to) {
+        long first = firstGranule(from);
+        long end = endGranule(to);
+        if (first >= end) {
+            return 0;
+        }
+
+        // Allocated blocks starting in the range, less the part of the last one past the end of the range
+        long sum = allocatedStarting(first, end);
+        long last = prevHeader(end - 1);
+        if (last >= first) {
+            long block = blocks.get(last + 1);
+            if ((block & 1) != 0) {
+                sum -= Math.max(0, last + (block >>> 1) - end);
+            }
+        }
+
+        // Plus the part of an allocated block starting before the range that reaches into it
+        long before = first > 0 ? prevHeader(first - 1) : -1;
+        if (before >= 0) {
+            long block = blocks.get(before + 1);
+            if ((block & 1) != 0) {
+                sum += Math.max(0, Math.min(before + (block >>> 1), end) - first);
+            }
+        }
+        return sum << GRANULE_SHIFT;
+    }
+
+    /**
+     * Returns the number of bytes of the heap that a range overlaps, counted in whole granules.
+     *
+     * @param  from Offset of the first byte.
+     * @param  to Offset just past the last byte.
+     * @return Bytes in the granules overlapping the range, 0 if the range is outside the heap.
+     */
+    public long heapBytes(long from, long to) {
+        return Math.max(0, endGranule(to) - firstGranule(from)) << GRANULE_SHIFT;
+    }
+
+    /**
+     * Returns the number of blocks whose header starts in a range of the heap.
+     *
+     * @param  from Offset of the first byte.
+     * @param  to Offset just past the last byte.
+     * @return Block headers in the range.
+     */
+    public long headers(long from, long to) {
+        long first = endGranule(from);
+        long end = endGranule(to);
+        if (first >= end) {
+            return 0;
+        }
+        int firstWord = (int) (first >>> 6);
+        int lastWord = (int) ((end - 1) >>> 6);
+        long firstMask = -1L << first;
+        long lastMask = -1L >>> (63 - ((end - 1) & 63));
+        if (firstWord == lastWord) {
+            return Long.bitCount(headers[firstWord] & firstMask & lastMask);
+        }
+        return Long.bitCount(headers[firstWord] & firstMask) + Long.bitCount(headers[lastWord] & lastMask)
+                + sumWords(headerCounts, firstWord + 1, lastWord);
+    }
+
+    /**
+     * Records a changed block, forgetting the blocks it absorbed.
+     *
+     * @param  type One of HeapEvents.ALLOCATE, FREE, SPLIT or COALESCE.
+     * @param  block Offset of the block header.
+     * @param  size Size of the block after the change.
+     */
+    @Override
+    public void blockChanged(int type, long block, long size) {
+        long first = (block - heapStart) >>> GRANULE_SHIFT;
+        long end = first + (size >>> GRANULE_SHIFT);
+        for (long start = prevHeader(end - 1); start >= first; start = prevHeader(end - 1)) {
+            removeBlock(start);
+        }
+        addBlock(first, end - first, type == HeapEvents.ALLOCATE);
+    }
+
+    /**
+     * Rebuilds the whole summary by walking the heap.
+     */
+    @Override
+    public void resync() {
+        Arrays.fill(headers, 0);
+        Arrays.fill(allocatedStarts, 0);
+        blocks.clear();
+        for (long block = heap.firstBlock(); !heap.isEnd(block); block = heap.nextBlock(block)) {
+            long first = (block - heapStart) >>> GRANULE_SHIFT;
+            long size = heap.blockSize(block) >>> GRANULE_SHIFT;
+            boolean allocated = heap.isAllocated(block);
+            blocks.put(first + 1, size << 1 | (allocated ? 1 : 0));
+            headers[(int) (first >>> 6)] |= 1L << first;
+            if (allocated) {
+                allocatedStarts[(int) (first >>> 6)] += size;
+            }
+        }
+
+        // Sum every level from the one below
+        for (int level = 1; level < headerCounts.length; level++) {
+            for (int i = 0; i < headerCounts[level].length; i++) {
+                updateCell(level, i);
+            }
+        }
+    }
+
+    /**
+     * Adds a block start.
+     *
+     * @param  first Granule of the block start.
+     * @param  size Size of the block in granules.
+     * @param  allocated Whether the block is allocated.
+     */
+    private void addBlock(long first, long size, boolean allocated) {
+        int word = (int) (first >>> 6);
+        blocks.put(first + 1, size << 1 | (allocated ? 1 : 0));
+        headers[word] |= 1L << first;
+        if (allocated) {
+            allocatedStarts[word] += size;
+        }
+        updatePath(word);
+    }
+
+    /**
+     * Removes a block start.
+     *
+     * @param  first Granule of the block start.
+     */
+    private void removeBlock(long first) {
+        int word = (int) (first >>> 6);
+        long block = blocks.remove(first + 1);
+        headers[word] &= ~(1L << first);
+        if ((block & 1) != 0) {
+            allocatedStarts[word] -= block >>> 1;
+        }
+        updatePath(word);
+    }
+
+    /**
+     * Returns the granules of the allocated blocks starting in a range of granules.
+     *
+     * @param  first First granule.
+     * @param  end Granule just past the range.
+     * @return Total size of the allocated blocks in granules.
+     */
+    private long allocatedStarting(long first, long end) {
+        int firstWord = (int) (first >>> 6);
+        int lastWord = (int) ((end - 1) >>> 6);
+        long firstMask = -1L << first;
+        long lastMask = -1L >>> (63 - ((end - 1) & 63));
+        if (firstWord == lastWord) {
+            return allocatedIn(firstWord, firstMask & lastMask);
+        }
+        return allocatedIn(firstWord, firstMask) + allocatedIn(lastWord, lastMask)
+                + sumWords(allocatedCounts, firstWord + 1, lastWord);
+    }
+
+    /**
+     * Returns the granules of the allocated blocks starting at some of the granules of a word.
+     *
+     * @param  word Word of the bitmap.
+     * @param  mask Granules of the word to include.
+     * @return Total size of the allocated blocks in granules.
+     */
+    private long allocatedIn(int word, long mask) {
+        long bits = headers[word] & mask;
+        if (bits == headers[word]) {
+            return allocatedStarts[word];
+        }
+        long sum = 0;
+        for (; bits != 0; bits &= bits - 1) {
+            long block = blocks.get(((long) word << 6) + Long.numberOfTrailingZeros(bits) + 1);
+            if ((block & 1) != 0) {
+                sum += block >>> 1;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Sums whole words of the bitmap by climbing the pyramid from both ends of the range.
+     *
+     * @param  counts Pyramid to sum, either headerCounts or allocatedCounts.
+     * @param  from First word.
+     * @param  to Word just past the range.
+     * @return Sum of the cells covering the words.
+     */
+    private long sumWords(long[][] counts, int from, int to) {
+        long sum = 0;
+        for (int level = 0; from < to; level++) {
+            if ((from & 1) != 0) {
+                sum += cell(counts, level, from++);
+            }
+            if ((to & 1) != 0) {
+                sum += cell(counts, level, --to);
+            }
+            from >>>= 1;
+            to >>>= 1;
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the latest block start at or before a granule, descending the pyramid to skip empty stretches.
+     *
+     * @param  granule Granule to search back from.
+     * @return Granule of the block start, or -1 if there is none.
+     */
+    private long prevHeader(long granule) {
+        if (granule < 0) {
+            return -1;
+        }
+        int index = (int) (granule >>> 6);
+        long bits = headers[index] & (-1L >>> (63 - (granule & 63)));
+        if (bits == 0) {
+            // Climb until a cell to the left holds a block start
+            int level = 0;
+            while ((index & 1) == 0 || cell(headerCounts, level, index - 1) == 0) {
+                index >>>= 1;
+                if (++level == headerCounts.length) {
+                    return -1;
+                }
+            }
+            index--;
+
+            // Descend into the rightmost cell that holds a block start
+            while (level > 0) {
+                level--;
+                index = cell(headerCounts, level, 2 * index + 1) > 0 ? 2 * index + 1 : 2 * index;
+            }
+            bits = headers[index];
+        }
+        return ((long) index << 6) + 63 - Long.numberOfLeadingZeros(bits);
+    }
+
+    /**
+     * Returns a cell of a pyramid, where level 0 is a single word of the bitmap.
+     *
+     * @param  counts Pyramid, either headerCounts or allocatedCounts.
+     * @param  level Level of the cell.
+     * @param  index Index of the cell in its level.
+     * @return Block starts, or allocated granules, in the words the cell covers.
+     */
+    private long cell(long[][] counts, int level, int index) {
+        if (level == 0) {
+            if (index >= headers.length) {
+                return 0;
+            }
+            return counts == headerCounts ? Long.bitCount(headers[index]) : allocatedStarts[index];
+        }
+        return index < counts[level].length ? counts[level][index] : 0;
+    }
+
+    /**
+     * Recomputes the cells above a changed word of the bitmap.
+     *
+     * @param  word Changed word.
+     */
+    private void updatePath(int word) {
+        for (int level = 1; level < headerCounts.length; level++) {
+            updateCell(level, word >>> level);
+        }
+    }
+
+    /**
+     * Recomputes a cell of both pyramids from the two cells below it.
+     *
+     * @param  level Level of the cell, at least 1.
+     * @param  index Index of the cell in its level.
+     */
+    private void updateCell(int level, int index) {
+        headerCounts[level][index] = cell(headerCounts, level - 1, 2 * index)
+                + cell(headerCounts, level - 1, 2 * index + 1);
+        allocatedCounts[level][index] = cell(allocatedCounts, level - 1, 2 * index)
+                + cell(allocatedCounts, level - 1, 2 * index + 1);
+    }
+
+    /**
+     * Returns the first granule overlapping a range that starts at the given offset.
+     *
+     * @param  from Offset of the first byte.
+     * @return Granule index, clamped to the heap.
+     */
+    private long firstGranule(long from) {
+        return Math.max(0, Math.min(granules, (from - heapStart) >> GRANULE_SHIFT));
+    }
+
+    /**
+     * Returns the granule just past a range that ends at the given offset, which is also the first granule that
+     * starts at or after the offset.
+     *
+     * @param  to Offset just past the last byte.
+     * @return Granule index, clamped to the heap.
+     */
+    private long endGranule(long to) {
+        return Math.max(0, Math.min(granules, (to - heapStart + (1 << GRANULE_SHIFT) - 1) >> GRANULE_SHIFT));
+    }
+}
@@ -0,0 +1,180 @@
+package allocator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * PersistentHeap keeps a HeapEngine in a memory-mapped file so a large heap survives a restart. The file starts with
+ * a superblock recording the heap's geometry and a checksum, followed by the heap itself with its headers and
+ * payloads exactly as the engine laid them out. Reopening a file checks the superblock, the prologue mark and the end
+ * mark, then reuses the existing blocks, so only the free block index is rebuilt by one pass over the headers.
+ *
+ * @author Brandon Kenter
+ */
+public class PersistentHeap implements Closeable {
+    private static final int MAGIC = 0x50414548; // "HEAP" read little-endian
+    private static final int VERSION = 1; // Version of the file layout
+    private static final int PROLOGUE_MARK = 0x474F5250; // "PROG" written at offset 0 of the heap
+    private static final int SUPERBLOCK_SIZE = 4096; // Bytes before the heap, keeping the heap page-aligned
+    private static final int CHECKSUM_OFFSET = 36; // Superblock bytes covered by the checksum
+
+    private final FileChannel channel; // Heap file
+    private final MappedHeapMemory memory; // Mapped heap
+    private final HeapEngine heap; // Engine operating on the mapped heap
+
+    private PersistentHeap(FileChannel channel, MappedHeapMemory memory, HeapEngine heap) {
+        this.channel = channel;
+        this.memory = memory;
+        this.heap = heap;
+    }
+
+    /**
+     * Creates a new heap file, replacing any existing file, with the heap initialized as a single free block.
+     *
+     * @param  file Heap file.
+     * @param  geometry Layout of the heap.
+     * @param  index Index of free blocks. Files must be reopened with an index needing no more links per block.
+     * @return The persistent heap.
+     * @throws IOException If the file cannot be created.
+     */
+    public static PersistentHeap create(Path file, HeapGeometry geometry, FreeBlockIndex index) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedHeapMemory memory = new MappedHeapMemory(channel, SUPERBLOCK_SIZE, geometry.totalSize());
+            HeapEngine heap = new HeapEngine(geometry, index, memory, true, 0);
+            memory.putInt(0, PROLOGUE_MARK);
+
+            // Step 1: Write the superblock describing the heap
+            ByteBuffer superblock = ByteBuffer.allocate(CHECKSUM_OFFSET + 4).order(ByteOrder.LITTLE_ENDIAN);
+            superblock.putInt(MAGIC).putInt(VERSION).putLong(geometry.heapSize()).putInt(geometry.headerSize())
+                    .putInt(geometry.prologueSize()).putInt(geometry.epilogueSize()).putLong(heap.minBlockSize());
+            superblock.putInt(checksum(superblock));
+            superblock.flip();
+            channel.write(superblock, 0);
+
+            // Step 2: Make the empty heap durable before handing it out
+            memory.force();
+            channel.force(true);
+            return new PersistentHeap(channel, memory, heap);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reopens an existing heap file, keeping every block allocated when it was last written.
+     *
+     * @param  file Heap file written by create.
+     * @param  index Index of free blocks, needing no more links per block than the index the file was created with.
+     *               The heap keeps the minimum block size the file was created with, so it can be reopened with the
+     *               original index later.
+     * @return The persistent heap.
+     * @throws IOException If the file cannot be read or does not hold a valid heap.
+     */
+    public static PersistentHeap open(Path file, FreeBlockIndex index) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            // Step 1: Check the superblock
+            ByteBuffer superblock = ByteBuffer.allocate(CHECKSUM_OFFSET + 4).order(ByteOrder.LITTLE_ENDIAN);
+            while (superblock.hasRemaining() && channel.read(superblock, superblock.position()) >= 0) {
+                // Keep reading until the superblock is complete or the file ends
+            }
+            if (superblock.hasRemaining() || superblock.getInt(0) != MAGIC) {
+                throw new IOException("Not a heap file: " + file);
+            }
+            if (superblock.getInt(4) != VERSION) {
+                throw new IOException("Unsupported heap file version: " + superblock.getInt(4));
+            }
+            superblock.position(CHECKSUM_OFFSET);
+            if (superblock.getInt(CHECKSUM_OFFSET) != checksum(superblock)) {
+                throw new IOException("Heap file superblock checksum mismatch: " + file);
+            }
+            HeapGeometry geometry;
+            try {
+                geometry = new HeapGeometry(superblock.getLong(8), superblock.getInt(16), superblock.getInt(20),
+                        superblock.getInt(24));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Corrupt heap geometry: " + file, e);
+            }
+            long minBlockSize = superblock.getLong(28);
+            if (minBlockSize < geometry.minBlockSize() || minBlockSize % 8 != 0 || minBlockSize > geometry.heapSize()) {
+                throw new IOException("Corrupt heap geometry: " + file);
+            }
+            if (HeapEngine.minBlockSize(geometry, index) > minBlockSize) {
+                throw new IOException("Index needs larger blocks than the heap file was created with");
+            }
+            if (channel.size() < SUPERBLOCK_SIZE + geometry.totalSize()) {
+                throw new IOException("Heap file is truncated: " + file);
+            }
+
+            // Step 2: Check the prologue mark, then rebuild the index from the existing blocks
+            MappedHeapMemory memory = new MappedHeapMemory(channel, SUPERBLOCK_SIZE, geometry.totalSize());
+            if (memory.getInt(0) != PROLOGUE_MARK) {
+                throw new IOException("Corrupt heap prologue: " + file);
+            }
+            HeapEngine heap;
+            try {
+                heap = new HeapEngine(geometry, index, memory, false, minBlockSize);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                throw new IOException("Corrupt heap: " + file, e);
+            }
+            return new PersistentHeap(channel, memory, heap);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the engine operating on the mapped heap.
+     *
+     * @return The heap.
+     */
+    public HeapEngine heap() {
+        return heap;
+    }
+
+    /**
+     * Writes every change to the heap through to the file.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    public void sync() throws IOException {
+        memory.force();
+        channel.force(false);
+    }
+
+    /**
+     * Writes every change to the heap through to the file and closes it. The heap must not be used afterwards.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Computes the checksum of the superblock bytes before the buffer's position.
+     *
+     * @param  superblock Superblock positioned at the checksum field.
+     * @return CRC-32 of the superblock fields.
+     */
+    private static int checksum(ByteBuffer superblock) {
+        CRC32 crc = new CRC32();
+        crc.update(superblock.array(), 0, superblock.position());
+        return (int) crc.getValue();
+    }
+}
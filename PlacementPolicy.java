@@ -0,0 +1,30 @@
+package allocator;
+
+/**
+ * PlacementPolicy names the policies a HeapEngine can use to choose a free block for an allocation, so the policy can
+ * be picked per deployment (for example from a configuration string with valueOf()).
+ *
+ * @author Brandon Kenter
+ */
+public enum PlacementPolicy {
+    FIRST_FIT, // First free block from the start of the heap that is large enough
+    FIRST_FIT_TREE, // First free block from the start of the heap that is large enough, found with a segment tree
+    NEXT_FIT, // First free block from where the previous search stopped that is large enough
+    BEST_FIT, // Smallest free block that is large enough
+    WORST_FIT; // Largest free block
+
+    /**
+     * Creates a new free block index that implements this policy.
+     *
+     * @return Index of free blocks for a single heap.
+     */
+    public FreeBlockIndex newIndex() {
+        return switch (this) {
+            case FIRST_FIT -> new ImplicitFreeList();
+            case FIRST_FIT_TREE -> new FirstFitTree();
+            case NEXT_FIT -> new NextFitFreeList();
+            case BEST_FIT -> new FreeBlockTree(FreeBlockTree.Fit.BEST);
+            case WORST_FIT -> new FreeBlockTree(FreeBlockTree.Fit.WORST);
+        };
+    }
+}
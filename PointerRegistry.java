@@ -0,0 +1,106 @@
+package allocator;
+
+import java.util.Arrays;
+
+/**
+ * PointerRegistry records the live pointers handed out by an allocator and the block header behind each one, so a
+ * pointer can be checked before it is freed without trusting the heap's headers. Lookups, additions and removals are
+ * constant time on primitive hash maps. Pointers that were freed and not handed out again are remembered as well,
+ * which tells a double free apart from a pointer that was never allocated. A sorted view of the live pointers is only
+ * built when asked for, and is reused until the next change.
+ *
+ * @author Brandon Kenter
+ */
+public class PointerRegistry {
+    private final LongLongHashMap live = new LongLongHashMap(); // Live pointer to the offset of its block header
+    private final LongLongHashMap freed = new LongLongHashMap(); // Freed pointers not allocated again since
+    private long[] sorted = new long[0]; // Live pointers in address order, valid while sortedValid is set
+    private boolean sortedValid = true; // Whether sorted matches the live pointers
+
+    /**
+     * Records a pointer returned by an allocation.
+     *
+     * @param  ptr Offset of the payload, not NULL.
+     * @param  block Offset of the payload's block header.
+     */
+    public void add(long ptr, long block) {
+        if (ptr == HeapEngine.NULL || live.containsKey(ptr)) {
+            throw new IllegalArgumentException("Pointer is already live: " + ptr);
+        }
+        live.put(ptr, block);
+        freed.remove(ptr);
+        sortedValid = false;
+    }
+
+    /**
+     * Checks that a pointer is live and forgets it, before the pointer is freed.
+     *
+     * @param  ptr Offset of the payload.
+     * @return Offset of the payload's block header.
+     * @throws IllegalArgumentException If the pointer was already freed or was never allocated.
+     */
+    public long remove(long ptr) {
+        long block = ptr == HeapEngine.NULL ? HeapEngine.NULL : live.remove(ptr);
+        if (block == HeapEngine.NULL) {
+            String problem = freed.containsKey(ptr) ? "Double free" : "Invalid free";
+            throw new IllegalArgumentException(problem + " of pointer " + ptr);
+        }
+        freed.put(ptr, block);
+        sortedValid = false;
+        return block;
+    }
+
+    /**
+     * Returns whether a pointer is live.
+     *
+     * @param  ptr Offset of the payload.
+     * @return True if the pointer was allocated and not freed since.
+     */
+    public boolean contains(long ptr) {
+        return ptr != HeapEngine.NULL && live.containsKey(ptr);
+    }
+
+    /**
+     * Returns the block header behind a live pointer.
+     *
+     * @param  ptr Offset of the payload.
+     * @return Offset of the block header, or NULL if the pointer is not live.
+     */
+    public long block(long ptr) {
+        return ptr == HeapEngine.NULL ? HeapEngine.NULL : live.get(ptr);
+    }
+
+    /**
+     * Returns the number of live pointers.
+     *
+     * @return Live pointer count.
+     */
+    public int size() {
+        return live.size();
+    }
+
+    /**
+     * Forgets every pointer, when the heap is cleared.
+     */
+    public void clear() {
+        live.clear();
+        freed.clear();
+        sorted = new long[0];
+        sortedValid = true;
+    }
+
+    /**
+     * Returns the live pointers in address order, sorting them only if they changed since the last call.
+     *
+     * @return Sorted live pointers. The array is shared and must not be modified.
+     */
+    public long[] sorted() {
+        if (!sortedValid) {
+            sorted = new long[live.size()];
+            live.keys(sorted);
+            Arrays.sort(sorted);
+            sortedValid = true;
+        }
+        return sorted;
+    }
+}
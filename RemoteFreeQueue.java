@@ -0,0 +1,109 @@
+package allocator;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RemoteFreeQueue collects blocks of a heap that were freed by threads that do not own the heap. Any number of threads
+ * push pointers without locking, and the owner drains them all at once while it holds the heap. The queue is
+ * intrusive: each pushed block's first payload word links to the block pushed before it, so pushing never allocates.
+ * The owner takes the whole chain with a single atomic exchange, which rules out ABA problems on the head. Blocks are
+ * drained in LIFO order, which does not matter for frees. Pointers are validated by the freeing thread when they are
+ * pushed, so an invalid free is reported to the thread that made it rather than to whichever thread drains the queue.
+ * The owner must drain the queue before it frees a block itself, so that a block freed both remotely and by the owner
+ * is reported by the owner's free before that free can overwrite the block's link.
+ *
+ * @author Brandon Kenter
+ */
+public class RemoteFreeQueue {
+    private final HeapEngine heap; // Heap that owns the queued blocks
+    private static final long QUEUED = 4; // Spare header bit marking a block already reached by drain()
+
+    private final AtomicLong head = new AtomicLong(HeapEngine.NULL); // Most recently pushed pointer, or NULL
+    private long rejected; // Drains stopped by a block that was freed twice
+
+    /**
+     * Creates an empty queue for the given heap.
+     *
+     * @param  heap Heap that owns the queued blocks.
+     */
+    public RemoteFreeQueue(HeapEngine heap) {
+        this.heap = heap;
+    }
+
+    /**
+     * Queues an allocated block of the heap to be freed by the owner. Safe to call from any thread. The block's header
+     * is only read, which is safe without the owner's lock because only the owner of an allocated block frees it.
+     *
+     * @param  ptr Payload pointer within the heap.
+     * @throws IllegalArgumentException If the pointer is not an allocated block of the heap.
+     */
+    public void push(long ptr) {
+        heap.allocatedBlock(ptr, "free");
+        long next;
+        do {
+            next = head.get();
+            heap.setWord(ptr, next);
+        } while (!head.compareAndSet(next, ptr));
+    }
+
+    /**
+     * Returns whether no blocks are queued.
+     *
+     * @return True if the queue is empty.
+     */
+    public boolean isEmpty() {
+        return head.get() == HeapEngine.NULL;
+    }
+
+    /**
+     * Frees every queued block. Must only be called by a thread that has exclusive access to the heap. The chain is
+     * checked before anything is freed: a block that is no longer allocated, or that appears twice because it was
+     * pushed twice, has had its link overwritten, so the blocks up to it are freed, the rest of the chain cannot be
+     * followed, and the stop is counted by rejected() instead of failing the caller.
+     *
+     * @return Number of blocks freed.
+     */
+    public int drain() {
+        long first = head.getAndSet(HeapEngine.NULL);
+        long headerSize = heap.geometry().headerSize();
+
+        // Mark every block of the chain until one is not allocated or already marked
+        int count = 0;
+        for (long ptr = first; ptr != HeapEngine.NULL; ptr = heap.word(ptr)) {
+            long header = heap.word(ptr - headerSize);
+            if ((header & HeapEngine.A_BIT) == 0 || (header & QUEUED) != 0) {
+                rejected++;
+                break;
+            }
+            heap.setWord(ptr - headerSize, header | QUEUED);
+            count++;
+        }
+
+        // Free the marked blocks
+        long ptr = first;
+        for (int i = 0; i < count; i++) {
+            long next = heap.word(ptr);
+            heap.setWord(ptr - headerSize, heap.word(ptr - headerSize) & ~QUEUED);
+            heap.free(ptr);
+            ptr = next;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of times drain() stopped at a block that was freed twice. Must only be called by a thread
+     * that has exclusive access to the heap.
+     *
+     * @return Number of rejected frees.
+     */
+    public long rejected() {
+        return rejected;
+    }
+
+    /**
+     * Forgets every queued block without freeing it, for when the heap has been cleared.
+     */
+    public void discard() {
+        head.set(HeapEngine.NULL);
+    }
+}
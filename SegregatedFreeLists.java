@@ -0,0 +1,140 @@
+package allocator;
+
+import java.util.Arrays;
+
+/**
+ * SegregatedFreeLists bins free blocks by size class, with one doubly-linked list per class whose links are stored in
+ * the payload of the free blocks. Small blocks up to 128 bytes have one exact class per multiple of 8, and larger
+ * blocks are binned by power of two. A 64-bit bitmap records which classes are non-empty, so a fitting block is found
+ * with a single bit scan: any block in a larger class than the request's class is guaranteed to fit. Only when every
+ * larger class is empty is the request's own power-of-two class searched for a large enough block.
+ *
+ * @author Brandon Kenter
+ */
+public class SegregatedFreeLists implements FreeBlockIndex {
+    private static final int CLASS_COUNT = 64; // Number of size classes (one bit each in the bitmap)
+    private static final int EXACT_CLASSES = 16; // Classes holding exactly one block size (8 to 128 bytes)
+    private static final long EXACT_LIMIT = 8L * EXACT_CLASSES; // Largest block size with an exact class
+    private static final int EXACT_LIMIT_LOG = 7; // log2 of the first power-of-two class lower bound (128)
+
+    private final long[] heads = new long[CLASS_COUNT]; // First free block of each class, or NULL
+    private long bitmap; // Bit c is set when class c is non-empty
+    private HeapEngine heap; // Heap whose free blocks are binned
+    private long nextOffset; // Offset of the next link from the block header
+    private long prevOffset; // Offset of the previous link from the block header
+    private long visits; // Blocks examined by find()
+
+    @Override
+    public void attach(HeapEngine heap) {
+        this.heap = heap;
+        this.nextOffset = heap.geometry().headerSize();
+        this.prevOffset = 2L * heap.geometry().headerSize();
+    }
+
+    @Override
+    public int linkWords() {
+        return 2;
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(heads, HeapEngine.NULL);
+        bitmap = 0;
+    }
+
+    @Override
+    public void insert(long block) {
+        // Push onto the front of the block's class
+        int sizeClass = classOf(heap.blockSize(block));
+        long head = heads[sizeClass];
+        setPrev(block, HeapEngine.NULL);
+        setNext(block, head);
+        if (head != HeapEngine.NULL) {
+            setPrev(head, block);
+        }
+        heads[sizeClass] = block;
+        bitmap |= 1L << sizeClass;
+    }
+
+    @Override
+    public void remove(long block) {
+        long prev = prev(block);
+        long next = next(block);
+        if (prev == HeapEngine.NULL) {
+            int sizeClass = classOf(heap.blockSize(block));
+            heads[sizeClass] = next;
+            if (next == HeapEngine.NULL) {
+                bitmap &= ~(1L << sizeClass);
+            }
+        } else {
+            setNext(prev, next);
+        }
+        if (next != HeapEngine.NULL) {
+            setPrev(next, prev);
+        }
+    }
+
+    @Override
+    public long find(long size) {
+        int sizeClass = classOf(size);
+
+        // Every block of an exact class has exactly the requested size
+        if (sizeClass < EXACT_CLASSES && heads[sizeClass] != HeapEngine.NULL) {
+            visits++;
+            return heads[sizeClass];
+        }
+
+        // Every block of a larger class is big enough, so take the smallest non-empty one
+        long larger = sizeClass == CLASS_COUNT - 1 ? 0 : bitmap & (-1L << (sizeClass + 1));
+        if (larger != 0) {
+            visits++;
+            return heads[Long.numberOfTrailingZeros(larger)];
+        }
+
+        // Otherwise search the request's own power-of-two class
+        if (sizeClass >= EXACT_CLASSES) {
+            for (long block = heads[sizeClass]; block != HeapEngine.NULL; block = next(block)) {
+                visits++;
+                if (heap.blockSize(block) >= size) {
+                    return block;
+                }
+            }
+        }
+        return HeapEngine.NULL;
+    }
+
+    @Override
+    public long visits() {
+        return visits;
+    }
+
+    /**
+     * Returns the size class of a block size.
+     *
+     * @param  size Block size in bytes, a positive multiple of 8.
+     * @return Class index between 0 and 63.
+     */
+    static int classOf(long size) {
+        if (size <= EXACT_LIMIT) {
+            return (int) (size >>> 3) - 1;
+        }
+        int log = 63 - Long.numberOfLeadingZeros(size);
+        return Math.min(CLASS_COUNT - 1, EXACT_CLASSES + log - EXACT_LIMIT_LOG);
+    }
+
+    private long next(long block) {
+        return heap.word(block + nextOffset);
+    }
+
+    private long prev(long block) {
+        return heap.word(block + prevOffset);
+    }
+
+    private void setNext(long block, long next) {
+        heap.setWord(block + nextOffset, next);
+    }
+
+    private void setPrev(long block, long prev) {
+        heap.setWord(block + prevOffset, prev);
+    }
+}
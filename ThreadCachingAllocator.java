@@ -0,0 +1,248 @@
+package allocator;
+
+import java.util.Arrays;
+
+/**
+ * ThreadCachingAllocator puts a small per-thread cache of free blocks in front of a shared allocator. Small blocks are
+ * binned by usable size in multiples of 8 bytes, and every thread keeps a bounded stack of blocks per bin. A small
+ * malloc is served from the calling thread's bin without touching the shared heap or taking a lock, and a small free
+ * pushes the block onto the thread's bin. When a bin is empty it is refilled, and when it is full half of it is
+ * flushed, in a single visit to the shared heap under its lock. Large requests go straight to the shared heap.
+ *
+ * Cached blocks remain allocated in the shared heap, so they are counted as allocated by allocatedSize() and
+ * freeSize(). A thread that stops allocating should call flush() to return its cached blocks. A small free is
+ * rejected if the shared heap does not hold the block as allocated or the block is already in the thread's bin, so a
+ * double free is caught before the block could be handed out twice, unless it is cached by another thread.
+ *
+ * @author Brandon Kenter
+ */
+public class ThreadCachingAllocator implements Allocator {
+    private final Allocator shared; // Shared heap, guarded by its own monitor
+    private final int binCount; // Number of bins, bin i caches blocks with at least 8 * i usable bytes
+    private final int binCapacity; // Maximum number of blocks cached per bin and thread
+    private final ThreadLocal<Cache> caches = ThreadLocal.withInitial(this::newCache); // Cache of each thread
+    private volatile int generation; // Incremented by clear() so caches drop blocks of the old heap
+
+    /**
+     * Creates a caching allocator that caches blocks of up to 128 bytes, 16 per size and thread.
+     *
+     * @param  shared Shared heap.
+     */
+    public ThreadCachingAllocator(Allocator shared) {
+        this(shared, 128, 16);
+    }
+
+    /**
+     * Creates a caching allocator.
+     *
+     * @param  shared Shared heap. All access to it must go through this allocator.
+     * @param  maxCachedSize Largest request in bytes served from the caches.
+     * @param  binCapacity Maximum number of blocks cached per size and thread, at least 2.
+     */
+    public ThreadCachingAllocator(Allocator shared, int maxCachedSize, int binCapacity) {
+        if (maxCachedSize < 8 || binCapacity < 2) {
+            throw new IllegalArgumentException("Cache must hold at least two blocks of 8 bytes");
+        }
+        this.shared = shared;
+        this.binCount = (maxCachedSize >> 3) + 1;
+        this.binCapacity = binCapacity;
+    }
+
+    @Override
+    public long malloc(long size) {
+        int bin = (int) ((size + 7) >> 3);
+        if (size <= 0 || bin >= binCount) {
+            synchronized (shared) {
+                return shared.malloc(size);
+            }
+        }
+
+        // Serve from the thread's bin, refilling it from the shared heap when it is empty
+        Cache cache = cache();
+        int count = cache.counts[bin];
+        if (count == 0) {
+            count = refill(cache, bin);
+            if (count == 0) {
+                return HeapEngine.NULL;
+            }
+        }
+        cache.counts[bin] = --count;
+        return cache.blocks[bin * binCapacity + count];
+    }
+
+    @Override
+    public void free(long ptr) {
+        long usable;
+        try {
+            usable = usableSize(ptr);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid free of pointer " + ptr, e);
+        }
+        if (usable < 8 || usable >= (long) binCount << 3) {
+            synchronized (shared) {
+                shared.free(ptr);
+            }
+            return;
+        }
+
+        // Reject a block already in the thread's bin
+        int bin = (int) (usable >> 3);
+        Cache cache = cache();
+        int base = bin * binCapacity;
+        for (int i = 0; i < cache.counts[bin]; i++) {
+            if (cache.blocks[base + i] == ptr) {
+                throw new IllegalArgumentException("Double free of pointer " + ptr);
+            }
+        }
+
+        // Push onto the thread's bin, flushing half of it to the shared heap when it is full
+        if (cache.counts[bin] == binCapacity) {
+            flush(cache, bin, binCapacity / 2);
+        }
+        cache.blocks[base + cache.counts[bin]++] = ptr;
+    }
+
+    /**
+     * Resizes a block. A cached-size block that is already large enough is kept as is without taking the lock, and
+     * any other request is resized by the shared heap.
+     *
+     * @param  ptr Offset of a payload returned by malloc(), or HeapEngine.NULL.
+     * @param  size Number of bytes requested.
+     * @return Offset of the resized payload, or HeapEngine.NULL if the block was freed or the request cannot be
+     *         satisfied.
+     */
+    @Override
+    public long realloc(long ptr, long size) {
+        if (ptr != HeapEngine.NULL && size > 0) {
+            long usable = usableSize(ptr);
+            if (size <= usable && usable < (long) binCount << 3) {
+                return ptr;
+            }
+        }
+        synchronized (shared) {
+            return shared.realloc(ptr, size);
+        }
+    }
+
+    @Override
+    public long usableSize(long ptr) {
+        return shared.usableSize(ptr);
+    }
+
+    @Override
+    public long allocatedSize() {
+        synchronized (shared) {
+            return shared.allocatedSize();
+        }
+    }
+
+    @Override
+    public long freeSize() {
+        synchronized (shared) {
+            return shared.freeSize();
+        }
+    }
+
+    /**
+     * Frees every block of the shared heap. Blocks cached by other threads are dropped the next time they use their
+     * cache.
+     */
+    @Override
+    public void clear() {
+        synchronized (shared) {
+            generation++;
+            shared.clear();
+        }
+    }
+
+    /**
+     * Returns every block cached by the calling thread to the shared heap.
+     */
+    public void flush() {
+        Cache cache = cache();
+        synchronized (shared) {
+            for (int bin = 0; bin < binCount; bin++) {
+                for (int i = 0; i < cache.counts[bin]; i++) {
+                    shared.free(cache.blocks[bin * binCapacity + i]);
+                }
+                cache.counts[bin] = 0;
+            }
+        }
+    }
+
+    /**
+     * Returns the calling thread's cache, emptied if the heap was cleared since it was last used.
+     *
+     * @return Cache of the calling thread.
+     */
+    private Cache cache() {
+        Cache cache = caches.get();
+        int current = generation;
+        if (cache.generation != current) {
+            Arrays.fill(cache.counts, 0);
+            cache.generation = current;
+        }
+        return cache;
+    }
+
+    /**
+     * Allocates half a bin of blocks from the shared heap in one visit.
+     *
+     * @param  cache Cache of the calling thread.
+     * @param  bin Bin to refill, which is empty.
+     * @return Number of blocks now in the bin.
+     */
+    private int refill(Cache cache, int bin) {
+        int base = bin * binCapacity;
+        int count = 0;
+        synchronized (shared) {
+            while (count < binCapacity / 2) {
+                long ptr = shared.malloc((long) bin << 3);
+                if (ptr == HeapEngine.NULL) {
+                    break;
+                }
+                cache.blocks[base + count++] = ptr;
+            }
+        }
+        cache.counts[bin] = count;
+        return count;
+    }
+
+    /**
+     * Frees the oldest blocks of a bin to the shared heap in one visit.
+     *
+     * @param  cache Cache of the calling thread.
+     * @param  bin Bin to flush.
+     * @param  n Number of blocks to flush.
+     */
+    private void flush(Cache cache, int bin, int n) {
+        int base = bin * binCapacity;
+        synchronized (shared) {
+            for (int i = 0; i < n; i++) {
+                shared.free(cache.blocks[base + i]);
+            }
+        }
+        System.arraycopy(cache.blocks, base + n, cache.blocks, base, cache.counts[bin] - n);
+        cache.counts[bin] -= n;
+    }
+
+    private Cache newCache() {
+        Cache cache = new Cache(binCount, binCapacity);
+        cache.generation = generation;
+        return cache;
+    }
+
+    /**
+     * Blocks cached by a single thread, stored as one stack per bin in a flat array.
+     */
+    private static class Cache {
+        final long[] blocks; // Stack of bin i occupies [i * capacity, i * capacity + counts[i])
+        final int[] counts; // Number of blocks in each bin
+        int generation; // Generation of the heap the blocks belong to
+
+        Cache(int binCount, int binCapacity) {
+            this.blocks = new long[binCount * binCapacity];
+            this.counts = new int[binCount];
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package allocator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * TraceRecorder wraps an allocator and records every operation to a compact binary trace file that TraceReplayer can
+ * replay against any other allocator. The file starts with the magic bytes "HTRC" and a version byte, followed by one
+ * record per operation: an operation code, the nanoseconds since the previous record as a varint, and the operation's
+ * arguments. Sizes are unsigned varints and pointers are zigzag varints of the difference from the previous pointer in
+ * the trace, so consecutive allocations usually take one or two bytes. Records are collected in a fixed buffer, so
+ * recording does not allocate.
+ *
+ * @author Brandon Kenter
+ */
+public class TraceRecorder implements Allocator, Closeable {
+    static final byte[] MAGIC = {'H', 'T', 'R', 'C'}; // Magic bytes at the start of a trace
+    static final byte VERSION = 1; // Version of the trace format
+    static final byte MALLOC = 1; // Record: size, returned pointer
+    static final byte FREE = 2; // Record: pointer
+    static final byte CLEAR = 3; // Record: no arguments
+    static final byte REALLOC = 4; // Record: pointer, size, returned pointer
+    static final int MAX_RECORD_SIZE = 1 + 4 * 10; // Operation code and up to four 10-byte varints
+
+    private static final int BUFFER_SIZE = 1 << 16; // Bytes collected before writing to the file
+
+    private final Allocator allocator; // Allocator being recorded
+    private final FileChannel channel; // Trace file
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE); // Records not yet written
+    private long lastTime = System.nanoTime(); // Time of the previous record
+    private long lastPtr; // Pointer of the previous record
+
+    /**
+     * Creates a recorder that writes a new trace file, replacing any existing file.
+     *
+     * @param  allocator Allocator being recorded.
+     * @param  file Trace file.
+     * @throws IOException If the file cannot be created.
+     */
+    public TraceRecorder(Allocator allocator, Path file) throws IOException {
+        this.allocator = allocator;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        buffer.put(MAGIC).put(VERSION);
+    }
+
+    @Override
+    public long malloc(long size) {
+        long ptr = allocator.malloc(size);
+        begin(MALLOC);
+        putVarint(size);
+        putPointer(ptr);
+        return ptr;
+    }
+
+    @Override
+    public void free(long ptr) {
+        allocator.free(ptr);
+        begin(FREE);
+        putPointer(ptr);
+    }
+
+    @Override
+    public long realloc(long ptr, long size) {
+        long newPtr = allocator.realloc(ptr, size);
+        begin(REALLOC);
+        putPointer(ptr);
+        putVarint(size);
+        putPointer(newPtr);
+        return newPtr;
+    }
+
+    @Override
+    public long usableSize(long ptr) {
+        return allocator.usableSize(ptr);
+    }
+
+    @Override
+    public long allocatedSize() {
+        return allocator.allocatedSize();
+    }
+
+    @Override
+    public long freeSize() {
+        return allocator.freeSize();
+    }
+
+    @Override
+    public void clear() {
+        allocator.clear();
+        begin(CLEAR);
+    }
+
+    /**
+     * Writes every buffered record to the trace file.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes the buffered records and closes the trace file.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    /**
+     * Starts a record, making room for it in the buffer first.
+     *
+     * @param  op Operation code.
+     */
+    private void begin(byte op) {
+        if (buffer.remaining() < MAX_RECORD_SIZE) {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        long now = System.nanoTime();
+        buffer.put(op);
+        putVarint(now - lastTime);
+        lastTime = now;
+    }
+
+    /**
+     * Writes a pointer as the zigzag-encoded difference from the previous pointer.
+     *
+     * @param  ptr Pointer to write.
+     */
+    private void putPointer(long ptr) {
+        long delta = ptr - lastPtr;
+        putVarint((delta << 1) ^ (delta >> 63));
+        lastPtr = ptr;
+    }
+
+    /**
+     * Writes an unsigned varint, seven bits per byte with the high bit marking that more bytes follow.
+     *
+     * @param  value Value to write.
+     */
+    private void putVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+}
@@ -0,0 +1,198 @@
+package allocator;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * TraceReplayer streams a trace written by TraceRecorder through an allocator at full speed, ignoring the recorded
+ * timestamps. The file is read through memory-mapped windows, so traces larger than memory replay without copying.
+ * Recorded pointers are mapped to the pointers the replayed allocator returned with a LongLongHashMap, so the trace
+ * can be replayed against any allocator configuration.
+ *
+ * @author Brandon Kenter
+ */
+public class TraceReplayer {
+    private static final long WINDOW_SIZE = 1L << 30; // Bytes of the file mapped at a time
+
+    /**
+     * Counts of the operations performed by a replay.
+     */
+    public static class Result {
+        public long mallocs; // Allocations replayed
+        public long failedMallocs; // Allocations the replayed allocator could not satisfy
+        public long reallocs; // Reallocations replayed
+        public long failedReallocs; // Reallocations the replayed allocator could not satisfy
+        public long frees; // Frees replayed
+        public long skippedFrees; // Frees of blocks whose allocation failed during the replay
+        public long clears; // Clears replayed
+        public long elapsedNanos; // Time spent replaying
+    }
+
+    private final FileChannel channel; // Trace file
+    private final long fileSize; // Size of the trace file
+    private MappedByteBuffer window; // Mapped part of the file
+    private long windowStart; // File offset of the mapped part
+    private long lastPtr; // Pointer of the previous record
+
+    private TraceReplayer(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.fileSize = channel.size();
+        map(0);
+    }
+
+    /**
+     * Replays a trace file against an allocator.
+     *
+     * @param  file Trace file written by TraceRecorder.
+     * @param  allocator Allocator to replay against.
+     * @return Counts of the replayed operations.
+     * @throws IOException If the file cannot be read or is not a trace.
+     */
+    public static Result replay(Path file, Allocator allocator) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new TraceReplayer(channel).replay(allocator);
+        }
+    }
+
+    /**
+     * Replays every record of the trace.
+     *
+     * @param  allocator Allocator to replay against.
+     * @return Counts of the replayed operations.
+     * @throws IOException If the file cannot be read or is not a trace.
+     */
+    private Result replay(Allocator allocator) throws IOException {
+        for (byte b : TraceRecorder.MAGIC) {
+            if (window.remaining() == 0 || window.get() != b) {
+                throw new IOException("Not a heap trace");
+            }
+        }
+        if (window.remaining() == 0 || window.get() != TraceRecorder.VERSION) {
+            throw new IOException("Unsupported trace version");
+        }
+
+        Result result = new Result();
+        LongLongHashMap pointers = new LongLongHashMap(); // Recorded pointer to replayed pointer
+        long start = System.nanoTime();
+        while (hasRemaining()) {
+            byte op = window.get();
+            getVarint(); // Timestamp is ignored at full speed
+            switch (op) {
+                case TraceRecorder.MALLOC -> {
+                    long size = getVarint();
+                    long recorded = getPointer();
+                    long ptr = allocator.malloc(size);
+                    result.mallocs++;
+                    if (ptr == HeapEngine.NULL) {
+                        result.failedMallocs++;
+                    } else if (recorded != HeapEngine.NULL) {
+                        pointers.put(recorded, ptr);
+                    } else {
+                        // The recorded allocation failed, so nothing will free this block
+                        allocator.free(ptr);
+                    }
+                }
+                case TraceRecorder.FREE -> {
+                    long ptr = pointers.remove(getPointer());
+                    result.frees++;
+                    if (ptr == HeapEngine.NULL) {
+                        result.skippedFrees++;
+                    } else {
+                        allocator.free(ptr);
+                    }
+                }
+                case TraceRecorder.REALLOC -> {
+                    long recorded = getPointer();
+                    long size = getVarint();
+                    long recordedResult = getPointer();
+                    long ptr = recorded == HeapEngine.NULL ? HeapEngine.NULL : pointers.remove(recorded);
+                    result.reallocs++;
+                    if (recorded != HeapEngine.NULL && ptr == HeapEngine.NULL) {
+                        // The block's allocation failed during the replay, so there is nothing to resize
+                        result.failedReallocs++;
+                        continue;
+                    }
+                    long newPtr = allocator.realloc(ptr, size);
+                    if (size <= 0) {
+                        continue;
+                    }
+                    if (newPtr == HeapEngine.NULL) {
+                        // The original block is kept
+                        result.failedReallocs++;
+                        newPtr = ptr;
+                    }
+                    // Track the block under the pointer the rest of the trace uses for it
+                    long key = recordedResult != HeapEngine.NULL ? recordedResult : recorded;
+                    if (key != HeapEngine.NULL) {
+                        pointers.put(key, newPtr);
+                    } else if (newPtr != HeapEngine.NULL) {
+                        allocator.free(newPtr);
+                    }
+                }
+                case TraceRecorder.CLEAR -> {
+                    allocator.clear();
+                    pointers.clear();
+                    result.clears++;
+                }
+                default -> throw new IOException("Corrupt trace record " + op);
+            }
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Returns whether records remain, mapping the next window when the current one may end inside a record.
+     *
+     * @return True if there is another record.
+     * @throws IOException If the file cannot be mapped.
+     */
+    private boolean hasRemaining() throws IOException {
+        long position = windowStart + window.position();
+        if (window.remaining() < TraceRecorder.MAX_RECORD_SIZE && windowStart + window.limit() < fileSize) {
+            map(position);
+        }
+        return position < fileSize;
+    }
+
+    /**
+     * Maps the window of the file starting at the given offset.
+     *
+     * @param  position File offset of the window.
+     * @throws IOException If the file cannot be mapped.
+     */
+    private void map(long position) throws IOException {
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, fileSize - position));
+        windowStart = position;
+    }
+
+    /**
+     * Reads a pointer written as the zigzag-encoded difference from the previous pointer.
+     *
+     * @return Pointer read.
+     */
+    private long getPointer() {
+        long zigzag = getVarint();
+        lastPtr += (zigzag >>> 1) ^ -(zigzag & 1);
+        return lastPtr;
+    }
+
+    /**
+     * Reads an unsigned varint.
+     *
+     * @return Value read.
+     */
+    private long getVarint() {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = window.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package allocator.benchmarks;
+
+import allocator.Allocator;
+import allocator.BuddyAllocator;
+import allocator.ExplicitFreeList;
+import allocator.HeapEngine;
+import allocator.HeapGeometry;
+import allocator.PlacementPolicy;
+import allocator.SegregatedFreeLists;
+
+/**
+ * AllocatorMode names every single-heap allocator configuration that the benchmarks compare.
+ *
+ * @author Brandon Kenter
+ */
+public enum AllocatorMode {
+    IMPLICIT_FIRST_FIT, // Header walk from the start of the heap
+    FIRST_FIT_TREE, // Segment tree over heap chunks, address-ordered first fit
+    NEXT_FIT, // Header walk from a roving pointer
+    EXPLICIT_LIFO, // Explicit free list with LIFO insertion
+    EXPLICIT_ADDRESS, // Explicit free list in address order
+    SEGREGATED, // Segregated size-class free lists
+    BEST_FIT, // Size-ordered tree, smallest fitting block
+    WORST_FIT, // Size-ordered tree, largest block
+    DEFERRED_SEGREGATED, // Segregated free lists with deferred coalescing
+    BUDDY; // Binary buddy system
+
+    /**
+     * Creates a new allocator in this mode.
+     *
+     * @param  heapSize Size of the heap in bytes, a power of two.
+     * @return New allocator.
+     */
+    public Allocator create(long heapSize) {
+        HeapGeometry geometry = new HeapGeometry(heapSize);
+        return switch (this) {
+            case IMPLICIT_FIRST_FIT -> new HeapEngine(geometry, PlacementPolicy.FIRST_FIT);
+            case FIRST_FIT_TREE -> new HeapEngine(geometry, PlacementPolicy.FIRST_FIT_TREE);
+            case NEXT_FIT -> new HeapEngine(geometry, PlacementPolicy.NEXT_FIT);
+            case EXPLICIT_LIFO -> new HeapEngine(geometry, new ExplicitFreeList(ExplicitFreeList.Order.LIFO));
+            case EXPLICIT_ADDRESS -> new HeapEngine(geometry, new ExplicitFreeList(ExplicitFreeList.Order.ADDRESS));
+            case SEGREGATED -> new HeapEngine(geometry, new SegregatedFreeLists());
+            case BEST_FIT -> new HeapEngine(geometry, PlacementPolicy.BEST_FIT);
+            case WORST_FIT -> new HeapEngine(geometry, PlacementPolicy.WORST_FIT);
+            case DEFERRED_SEGREGATED -> {
+                HeapEngine heap = new HeapEngine(geometry, new SegregatedFreeLists());
+                heap.deferCoalescing(64);
+                yield heap;
+            }
+            case BUDDY -> new BuddyAllocator(heapSize);
+        };
+    }
+}
@@ -0,0 +1,135 @@
+package allocator.benchmarks;
+
+import allocator.Allocator;
+import allocator.ArenaAllocator;
+import allocator.HeapEngine;
+import allocator.HeapGeometry;
+import allocator.SegregatedFreeLists;
+import allocator.ThreadCachingAllocator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ContentionBenchmarks measures small-block malloc/free churn from several threads sharing one allocator: a single
+ * heap behind one lock, per-thread caches in front of that heap, and striped arenas.
+ *
+ * @author Brandon Kenter
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class ContentionBenchmarks {
+    private static final long HEAP_SIZE = 1L << 26; // 64 MiB shared by all threads
+    private static final int LIVE_BLOCKS = 1024; // Blocks kept alive by each thread
+
+    /**
+     * Allocator shared by every benchmark thread.
+     */
+    @State(Scope.Benchmark)
+    public static class SharedHeap {
+        @Param({"LOCKED", "THREAD_CACHE", "ARENAS"})
+        public String kind; // Concurrent allocator being measured
+
+        Allocator heap; // Allocator shared by the threads
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            // Split the heap across one arena per core, rounding each arena down to a multiple of 8 bytes
+            int arenas = Runtime.getRuntime().availableProcessors();
+            long arenaSize = (HEAP_SIZE / arenas) & ~7L;
+            heap = switch (kind) {
+                case "LOCKED" -> new Locked(new HeapEngine(new HeapGeometry(HEAP_SIZE), new SegregatedFreeLists()));
+                case "THREAD_CACHE" -> new ThreadCachingAllocator(
+                        new HeapEngine(new HeapGeometry(HEAP_SIZE), new SegregatedFreeLists()));
+                default -> new ArenaAllocator(arenas, new HeapGeometry(arenaSize), SegregatedFreeLists::new,
+                        ArenaAllocator.Assignment.ROUND_ROBIN);
+            };
+        }
+    }
+
+    /**
+     * Live blocks of a single benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class LiveBlocks {
+        final long[] live = new long[LIVE_BLOCKS]; // Ring of live pointers
+        int next; // Next slot of the ring to replace
+        int size; // Next request size
+    }
+
+    /**
+     * Frees the thread's oldest live block and allocates a small block in its place.
+     */
+    @Benchmark
+    public long churn(SharedHeap shared, LiveBlocks blocks) {
+        if (blocks.live[blocks.next] != HeapEngine.NULL) {
+            shared.heap.free(blocks.live[blocks.next]);
+        }
+        blocks.size = (blocks.size + 8) & 63;
+        long ptr = shared.heap.malloc(8 + blocks.size);
+        blocks.live[blocks.next] = ptr;
+        blocks.next = (blocks.next + 1) & (LIVE_BLOCKS - 1);
+        return ptr;
+    }
+
+    /**
+     * Single heap serialized behind one lock, the baseline for the concurrent allocators.
+     */
+    static class Locked implements Allocator {
+        private final Allocator heap; // Heap guarded by this object's monitor
+
+        Locked(Allocator heap) {
+            this.heap = heap;
+        }
+
+        @Override
+        public synchronized long malloc(long size) {
+            return heap.malloc(size);
+        }
+
+        @Override
+        public synchronized void free(long ptr) {
+            heap.free(ptr);
+        }
+
+        @Override
+        public synchronized long realloc(long ptr, long size) {
+            return heap.realloc(ptr, size);
+        }
+
+        @Override
+        public synchronized long usableSize(long ptr) {
+            return heap.usableSize(ptr);
+        }
+
+        @Override
+        public synchronized long allocatedSize() {
+            return heap.allocatedSize();
+        }
+
+        @Override
+        public synchronized long freeSize() {
+            return heap.freeSize();
+        }
+
+        @Override
+        public synchronized void clear() {
+            heap.clear();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package allocator.benchmarks;
+
+import allocator.Allocator;
+import allocator.HeapEngine;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SingleThreadBenchmarks measures the cost of a single allocator operation in every allocator mode. Throughput mode
+ * reports operations per second and sample-time mode reports per-operation latency percentiles.
+ *
+ * @author Brandon Kenter
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SingleThreadBenchmarks {
+    private static final long HEAP_SIZE = 1L << 20; // 1 MiB heap
+    private static final int LIVE_BLOCKS = 4096; // Blocks kept alive by the churn benchmarks
+    private static final int SIZES = 1 << 16; // Precomputed random sizes, a power of two
+
+    @Param
+    public AllocatorMode mode; // Allocator being measured
+
+    private Allocator heap; // Allocator under test
+    private final long[] live = new long[LIVE_BLOCKS]; // Ring of live pointers
+    private int next; // Next slot of the ring to replace
+    private final long[] sizes = new long[SIZES]; // Random request sizes
+    private int sizeIdx; // Next random size
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        heap = mode.create(HEAP_SIZE);
+        Random random = new Random(42);
+        for (int i = 0; i < SIZES; i++) {
+            // Mostly small requests with an occasional large one
+            sizes[i] = random.nextInt(8) == 0 ? 256 + random.nextInt(4096) : 1 + random.nextInt(128);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        heap.clear();
+        for (int i = 0; i < LIVE_BLOCKS; i++) {
+            live[i] = heap.malloc(nextSize());
+        }
+        next = 0;
+    }
+
+    /**
+     * Allocates fixed-size blocks until the heap is full, then clears it.
+     */
+    @Benchmark
+    public long allocateOnly() {
+        long ptr = heap.malloc(16);
+        if (ptr == HeapEngine.NULL) {
+            heap.clear();
+        }
+        return ptr;
+    }
+
+    /**
+     * Frees the oldest live block and allocates a block of the same small size.
+     */
+    @Benchmark
+    public long churn() {
+        return replace(16);
+    }
+
+    /**
+     * Frees the oldest live block and allocates a block of a random size.
+     */
+    @Benchmark
+    public long randomMix() {
+        return replace(nextSize());
+    }
+
+    /**
+     * Keeps every other block of a small size alive and allocates larger blocks between them, so searches have to
+     * skip many free blocks that are too small.
+     */
+    @Benchmark
+    public long fragmented(FragmentedHeap fragmented) {
+        long ptr = fragmented.heap.malloc(48);
+        if (ptr != HeapEngine.NULL) {
+            fragmented.heap.free(ptr);
+        }
+        return ptr;
+    }
+
+    private long replace(long size) {
+        if (live[next] != HeapEngine.NULL) {
+            heap.free(live[next]);
+        }
+        long ptr = heap.malloc(size);
+        live[next] = ptr;
+        next = (next + 1) & (LIVE_BLOCKS - 1);
+        return ptr;
+    }
+
+    private long nextSize() {
+        long size = sizes[sizeIdx];
+        sizeIdx = (sizeIdx + 1) & (SIZES - 1);
+        return size;
+    }
+
+    /**
+     * Heap where small free blocks alternate with small allocated blocks, followed by free space.
+     */
+    @State(Scope.Thread)
+    public static class FragmentedHeap {
+        Allocator heap; // Fragmented allocator
+
+        @Setup(Level.Trial)
+        public void setUp(SingleThreadBenchmarks benchmarks) {
+            heap = benchmarks.mode.create(HEAP_SIZE);
+            long[] ptrs = new long[(int) (HEAP_SIZE / 64)];
+            int count = 0;
+            for (long ptr; count < ptrs.length && (ptr = heap.malloc(16)) != HeapEngine.NULL; ) {
+                ptrs[count++] = ptr;
+            }
+
+            // Free every other block of the first half, then free the second half
+            for (int i = 0; i < count / 2; i += 2) {
+                heap.free(ptrs[i]);
+            }
+            for (int i = count / 2; i < count; i++) {
+                heap.free(ptrs[i]);
+            }
+        }
+    }
+}